@@ -1,51 +1,66 @@
-package data;
-
-import java.io.Serializable;
-
-/**
- * Questa classe implementa il concetto di attributo di una base di dati.
- * 
- * @author Gianluca Pagliara
- *
- */
-public abstract class Attribute implements Serializable {
-	protected String name;
-	protected int id;
-
-	/**
-	 * Istanzia l'oggetto e inizializza il nome e l'id dell'attributo
-	 * 
-	 * @param name nome dell'attributo
-	 * @param id id dell'attributo
-	 */
-	public Attribute(String name, int id) {
-		this.name = name;
-		this.id = id;
-	}
-
-	/**
-	 * Restituisce il nome dell'attributo.
-	 * 
-	 * @return nome dell'attributo
-	 */
-	String getName() {
-		return name;
-	}
-
-	/**
-	 * Restituisce l'id dell'attributo.
-	 * 
-	 * @return id dell'attributo
-	 */
-	int getId() {
-		return id;
-	}
-
-	/**
-	 * Restituisce il nome dell'attributo.
-	 */
-	public String toString() {
-		return name;
-	}
-
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Questa classe implementa il concetto di attributo di una base di dati.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public abstract class Attribute implements Serializable {
+	protected String name;
+	protected int id;
+
+	/**
+	 * Istanzia l'oggetto e inizializza il nome e l'id dell'attributo
+	 * 
+	 * @param name nome dell'attributo
+	 * @param id id dell'attributo
+	 */
+	public Attribute(String name, int id) {
+		this.name = name;
+		this.id = id;
+	}
+
+	/**
+	 * Restituisce il nome dell'attributo.
+	 * 
+	 * @return nome dell'attributo
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Restituisce l'id dell'attributo.
+	 * 
+	 * @return id dell'attributo
+	 */
+	int getId() {
+		return id;
+	}
+
+	/**
+	 * Scrive su out la descrizione dell'attributo nel formato binario del server:
+	 * il nome, seguito dal tipo e dal dominio scritti dalle sottoclassi.
+	 * 
+	 * @param out
+	 *            destinazione della descrizione
+	 * @throws IOException
+	 *             {@link DataOutput#writeUTF(String)}
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(name);
+	}
+
+	/**
+	 * Restituisce il nome dell'attributo.
+	 */
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,208 @@
+package data;
+
+/**
+ * Questa classe accumula, con un'unica scansione dei dati, le informazioni
+ * necessarie a calcolare i centroidi di un insieme di cluster: per ogni cluster
+ * la somma dei valori normalizzati di ciascun attributo continuo e
+ * l'istogramma dei valori di ciascun attributo discreto. Ogni tupla contribuisce
+ * in proporzione al suo peso, {@link Data#getWeight(int)}.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class CentroidAccumulator {
+	private Data data;
+	private int numberOfClusters;
+	// numero di tuple accumulate per ciascun cluster
+	private int[] counts;
+	// somma dei pesi delle tuple accumulate per ciascun cluster
+	private double[] totalWeights;
+	// somme pesate dei valori normalizzati, per attributo continuo e per cluster
+	// (null in corrispondenza degli attributi discreti)
+	private double[][] sums;
+	// istogrammi pesati dei codici dei valori, per attributo discreto; il peso del
+	// codice v nel cluster c si trova in posizione c * numero di valori + v (null
+	// in corrispondenza degli attributi continui)
+	private double[][] histograms;
+
+	/**
+	 * Istanzia l'oggetto, inizializzando a zero le informazioni accumulate per
+	 * numberOfClusters cluster sui dati di data.
+	 *
+	 * @param data
+	 *            dati su cui calcolare i centroidi
+	 * @param numberOfClusters
+	 *            numero di cluster
+	 */
+	public CentroidAccumulator(Data data, int numberOfClusters) {
+		this.data = data;
+		this.numberOfClusters = numberOfClusters;
+		int numberOfAttributes = data.getNumberOfAttributes();
+		counts = new int[numberOfClusters];
+		totalWeights = new double[numberOfClusters];
+		sums = new double[numberOfAttributes][];
+		histograms = new double[numberOfAttributes][];
+		for (Attribute attribute : data.getAttributeSchema()) {
+			if (attribute instanceof ContinuousAttribute)
+				sums[attribute.getId()] = new double[numberOfClusters];
+			else
+				histograms[attribute.getId()] = new double[numberOfClusters
+						* ((DiscreteAttribute) attribute).getNumberOfDistinctValues()];
+		}
+	}
+
+	/**
+	 * Accumula le righe di data con indice compreso tra from (incluso) e to
+	 * (escluso), ciascuna nel cluster a cui appartiene. Le righe non assegnate ad
+	 * alcun cluster sono ignorate.
+	 *
+	 * @param membership
+	 *            indice del cluster a cui appartiene ciascuna riga di data
+	 * @param from
+	 *            prima riga da accumulare
+	 * @param to
+	 *            riga successiva all'ultima da accumulare
+	 */
+	public void accumulate(int[] membership, int from, int to) {
+		double[] weights = data.getWeights();
+		for (int row = from; row < to; row++) {
+			int cluster = membership[row];
+			if (cluster >= 0) {
+				counts[cluster]++;
+				totalWeights[cluster] += weights == null ? 1 : weights[row];
+			}
+		}
+
+		// Scandisce i dati per colonna, così da leggere ciascun array in sequenza
+		for (int column = 0; column < sums.length; column++) {
+			if (sums[column] != null) {
+				double[] values = data.getContinuousColumn(column);
+				double[] columnSums = sums[column];
+				for (int row = from; row < to; row++) {
+					int cluster = membership[row];
+					if (cluster >= 0)
+						columnSums[cluster] += weights == null ? values[row] : weights[row] * values[row];
+				}
+			} else {
+				int[] codes = data.getDiscreteColumn(column);
+				double[] histogram = histograms[column];
+				int numberOfValues = histogram.length / numberOfClusters;
+				for (int row = from; row < to; row++) {
+					int cluster = membership[row];
+					if (cluster >= 0)
+						histogram[cluster * numberOfValues + codes[row]] += weights == null ? 1 : weights[row];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accumula la riga row di data nel cluster con indice cluster.
+	 *
+	 * @param row
+	 *            riga da accumulare
+	 * @param cluster
+	 *            indice del cluster
+	 */
+	public void add(int row, int cluster) {
+		double weight = data.getWeight(row);
+		counts[cluster]++;
+		totalWeights[cluster] += weight;
+		for (int column = 0; column < sums.length; column++) {
+			if (sums[column] != null) {
+				sums[column][cluster] += weight * data.getContinuousColumn(column)[row];
+			} else {
+				int numberOfValues = histograms[column].length / numberOfClusters;
+				histograms[column][cluster * numberOfValues + data.getDiscreteColumn(column)[row]] += weight;
+			}
+		}
+	}
+
+	/**
+	 * Aggiunge alle informazioni accumulate quelle di other, calcolate sugli
+	 * stessi dati e per lo stesso numero di cluster.
+	 *
+	 * @param other
+	 *            informazioni accumulate su un altro insieme di righe
+	 */
+	public void merge(CentroidAccumulator other) {
+		for (int cluster = 0; cluster < numberOfClusters; cluster++) {
+			counts[cluster] += other.counts[cluster];
+			totalWeights[cluster] += other.totalWeights[cluster];
+		}
+		for (int column = 0; column < sums.length; column++) {
+			if (sums[column] != null) {
+				for (int i = 0; i < sums[column].length; i++)
+					sums[column][i] += other.sums[column][i];
+			} else {
+				for (int i = 0; i < histograms[column].length; i++)
+					histograms[column][i] += other.histograms[column][i];
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di tuple accumulate nel cluster con indice cluster.
+	 *
+	 * @param cluster
+	 *            indice del cluster
+	 * @return numero di tuple del cluster
+	 */
+	public int getCount(int cluster) {
+		return counts[cluster];
+	}
+
+	/**
+	 * Restituisce la somma dei pesi delle tuple accumulate nel cluster con indice
+	 * cluster.
+	 * 
+	 * @param cluster
+	 *            indice del cluster
+	 * @return peso complessivo del cluster
+	 */
+	public double getWeight(int cluster) {
+		return totalWeights[cluster];
+	}
+
+	/**
+	 * Restituisce la media pesata dei valori normalizzati della colonna continua
+	 * column nel cluster con indice cluster.
+	 *
+	 * @param cluster
+	 *            indice del cluster
+	 * @param column
+	 *            colonna continua
+	 * @return media dei valori normalizzati, NaN se il cluster è vuoto
+	 */
+	double computeMean(int cluster, int column) {
+		if (totalWeights[cluster] <= 0)
+			return Double.NaN;
+		return sums[column][cluster] / totalWeights[cluster];
+	}
+
+	/**
+	 * Restituisce il codice del valore di peso complessivo maggiore della colonna
+	 * discreta column nel cluster con indice cluster. A parità di peso prevale il
+	 * valore che precede in ordine lessicografico.
+	 *
+	 * @param cluster
+	 *            indice del cluster
+	 * @param column
+	 *            colonna discreta
+	 * @return codice del valore più frequente, -1 se il cluster è vuoto
+	 */
+	int computeMode(int cluster, int column) {
+		if (totalWeights[cluster] <= 0)
+			return -1;
+
+		double[] histogram = histograms[column];
+		int numberOfValues = histogram.length / numberOfClusters;
+		int offset = cluster * numberOfValues;
+		int mostFrequentCode = 0;
+		for (int code = 1; code < numberOfValues; code++) {
+			if (histogram[offset + code] > histogram[offset + mostFrequentCode])
+				mostFrequentCode = code;
+		}
+		return mostFrequentCode;
+	}
+}
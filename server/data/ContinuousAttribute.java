@@ -1,47 +1,85 @@
-package data;
-
-/**
- * Questa classe estende {@linkplain Attribute} e rappresenta un attributo
- * continuo.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class ContinuousAttribute extends Attribute {
-
-	// Estremi dell'intervallo di valori (dominio) che l'attributo puo' realmente
-	// assumere
-	private double max;
-	private double min;
-
-	/**
-	 * Istanzia l'oggetto e inzializza il nome, l'id e i valori minimi e massimi che
-	 * l'attributo pu assumere.
-	 * 
-	 * @param name
-	 *            nome dell'attributo
-	 * @param id
-	 *            id dell'attributo
-	 * @param min
-	 *            valore minimo che pu assumere l'attributo
-	 * @param max
-	 *            valore massimo che pu assumere l'attributo
-	 */
-	public ContinuousAttribute(String name, int id, double min, double max) {
-		super(name, id);
-		this.min = min;
-		this.max = max;
-	}
-
-	/**
-	 * Normalizza il valore v.
-	 * 
-	 * @param v
-	 *            valore da normalizzare
-	 * @return valore normalizzato
-	 */
-	double getScaledValue(double v) {
-		return (v - min) / (max - min);
-	}
-
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Questa classe estende {@linkplain Attribute} e rappresenta un attributo
+ * continuo.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class ContinuousAttribute extends Attribute {
+
+	/**
+	 * Tipo degli attributi continui nel formato binario del server.
+	 */
+	public static final byte TYPE = 0;
+
+	// Estremi dell'intervallo di valori (dominio) che l'attributo puo' realmente
+	// assumere
+	private double max;
+	private double min;
+
+	/**
+	 * Istanzia l'oggetto e inzializza il nome, l'id e i valori minimi e massimi che
+	 * l'attributo può assumere.
+	 * 
+	 * @param name
+	 *            nome dell'attributo
+	 * @param id
+	 *            id dell'attributo
+	 * @param min
+	 *            valore minimo che può assumere l'attributo
+	 * @param max
+	 *            valore massimo che può assumere l'attributo
+	 */
+	public ContinuousAttribute(String name, int id, double min, double max) {
+		super(name, id);
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Normalizza il valore v nell'intervallo [0, 1]. Se il dominio si riduce a un
+	 * solo valore (min uguale a max) il valore normalizzato è 0, così che
+	 * l'attributo non contribuisca alle distanze.
+	 * 
+	 * @param v
+	 *            valore da normalizzare
+	 * @return valore normalizzato
+	 */
+	double getScaledValue(double v) {
+		if (max == min)
+			return 0;
+		return (v - min) / (max - min);
+	}
+
+	/**
+	 * Riporta il valore normalizzato v nel dominio originale dell'attributo. Se il
+	 * dominio si riduce a un solo valore restituisce min.
+	 * 
+	 * @param v
+	 *            valore normalizzato
+	 * @return valore nel dominio dell'attributo
+	 */
+	double getUnscaledValue(double v) {
+		if (max == min)
+			return min;
+		return v * (max - min) + min;
+	}
+
+	/**
+	 * Scrive su out il nome, il tipo {@link ContinuousAttribute#TYPE} e gli
+	 * estremi del dominio dell'attributo.
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+		out.writeByte(TYPE);
+		out.writeDouble(min);
+		out.writeDouble(max);
+	}
+
+}
@@ -1,36 +1,97 @@
-package data;
-
-/**
- * Questa classe estente {@link Item} e rappresenta un generico item continuo,
- * ossia una coppia attributo-valore continuo.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class ContinuousItem extends Item {
-
-	/**
-	 * Istanzia l'oggetto e inizializza l'attributo e il valore.
-	 * 
-	 * @param attribute
-	 *            attributo dell'item
-	 * @param value
-	 *            valore dell'item
-	 */
-	public ContinuousItem(Attribute attribute, Double value) {
-		super(attribute, value);
-	}
-
-	/**
-	 * Restituisce la distanza dall'oggetto obj, ossia la differenza in valore
-	 * assoluto dei valori normalizzati dei due oggetti.
-	 */
-	@Override
-	double distance(Object obj) {
-		double thisScaledValue = ((ContinuousAttribute) this.getAttribute()).getScaledValue((double) this.getValue());
-		double objScaledValue = ((ContinuousAttribute) ((Item) obj).getAttribute())
-				.getScaledValue(((double) ((Item) obj).getValue()));
-		return Math.abs(thisScaledValue - objScaledValue);
-	}
-
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Questa classe estente {@link Item} e rappresenta un generico item continuo,
+ * ossia una coppia attributo-valore continuo.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class ContinuousItem extends Item {
+	// valore normalizzato dell'item, calcolato una sola volta
+	private double scaledValue;
+
+	/**
+	 * Istanzia l'oggetto e inizializza l'attributo e il valore.
+	 * 
+	 * @param attribute
+	 *            attributo dell'item
+	 * @param value
+	 *            valore dell'item
+	 */
+	public ContinuousItem(Attribute attribute, Double value) {
+		super(attribute, value);
+		scaledValue = ((ContinuousAttribute) attribute).getScaledValue(value);
+	}
+
+	/**
+	 * Istanzia l'oggetto con il valore value, di cui è già noto il valore
+	 * normalizzato scaledValue.
+	 * 
+	 * @param attribute
+	 *            attributo dell'item
+	 * @param value
+	 *            valore dell'item
+	 * @param scaledValue
+	 *            valore normalizzato dell'item
+	 */
+	ContinuousItem(ContinuousAttribute attribute, double value, double scaledValue) {
+		super(attribute, value);
+		this.scaledValue = scaledValue;
+	}
+
+	/**
+	 * Restituisce il valore normalizzato dell'item.
+	 * 
+	 * @return valore normalizzato
+	 */
+	double getScaledValue() {
+		return scaledValue;
+	}
+
+	/**
+	 * Restituisce il contributo alla distanza tra i valori normalizzati dell'item
+	 * e di item, {@link DistanceMetric#distance(ContinuousAttribute, double, double)}.
+	 */
+	@Override
+	double distance(DistanceMetric metric, Item item) {
+		return metric.distance((ContinuousAttribute) getAttribute(), scaledValue, ((ContinuousItem) item).scaledValue);
+	}
+
+	/**
+	 * Restituisce il contributo alla distanza tra il valore normalizzato dell'item
+	 * e quello memorizzato nella riga row di data.
+	 */
+	@Override
+	double distance(DistanceMetric metric, Data data, int row) {
+		return metric.distance((ContinuousAttribute) getAttribute(), scaledValue,
+				data.getContinuousValue(row, getAttribute().getId()));
+	}
+
+	/**
+	 * Assegna all'item la media dei valori normalizzati del cluster con indice
+	 * cluster, {@link CentroidAccumulator#computeMean(int, int)}. Il centroide
+	 * resta così nello spazio normalizzato. Se il cluster è vuoto il valore resta
+	 * invariato.
+	 */
+	@Override
+	public void update(CentroidAccumulator accumulator, int cluster) {
+		double mean = accumulator.computeMean(cluster, getAttribute().getId());
+		if (!Double.isNaN(mean)) {
+			scaledValue = mean;
+			value = ((ContinuousAttribute) getAttribute()).getUnscaledValue(mean);
+		}
+	}
+
+	/**
+	 * Scrive su out il valore non normalizzato dell'item.
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeDouble((Double) value);
+	}
+
+}
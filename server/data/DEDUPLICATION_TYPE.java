@@ -0,0 +1,30 @@
+package data;
+
+/**
+ * Modalità di eliminazione delle tuple duplicate durante il caricamento di una
+ * tabella.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public enum DEDUPLICATION_TYPE {
+	/**
+	 * Tuple distinte estratte dal database con SELECT DISTINCT, senza pesi.
+	 */
+	DATABASE,
+	/**
+	 * Tuple distinte estratte dal database con GROUP BY; il numero di occorrenze
+	 * di ciascuna tupla, o la somma dei pesi delle sue righe, ne diventa il peso.
+	 */
+	GROUP_BY,
+	/**
+	 * Tuple distinte individuate durante il caricamento confrontando i valori
+	 * delle righe, {@link RowIndex}; il numero di occorrenze di ciascuna tupla, o
+	 * la somma dei pesi delle sue righe, ne diventa il peso.
+	 */
+	HASH,
+	/**
+	 * Nessuna eliminazione: la tabella non contiene righe duplicate.
+	 */
+	NONE
+}
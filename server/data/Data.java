@@ -1,291 +1,670 @@
-package data;
-
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Random;
-import java.util.Set;
-import java.util.TreeSet;
-
-import database.EmptySetException;
-import database.NoValueException;
-import database.QUERY_TYPE;
-import database.Row;
-import database.TableData;
-import database.TableSchema;
-import database.TableSchema.Column;
-
-/**
- * Questa classe rappresenta i dati estratti da un database.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class Data {
-
-	// Una lista di tipo Row dove ogni elemento modella una transazione
-	private List<Row> data;
-	// cardinalit dellinsieme di tuple (numero di righe in data)
-	private int numberOfTuples;
-	// un vettore degli attributi in ciascuna tupla (schema della tabella di dati)
-	private List<Attribute> explanatorySet;
-
-	/**
-	 * Istanzia l'oggetto e carica i dati dalla tabella.
-	 * 
-	 * @param table
-	 *            nome della tabella da cui caricare i dati
-	 */
-	public Data(String table) {
-		try {
-			// Carica i dati dalla tabella, li inserisce in un TreeSet cos da ordinarli e
-			// quindi inizializza data e numberOfExamples
-			TreeSet<Row> tempData = new TreeSet<Row>(TableData.getDistinctTransaction(table));
-			data = new ArrayList<Row>(tempData);
-			numberOfTuples = data.size();
-
-			// Inizializza explanatorySet
-			TableSchema tbSchema = new TableSchema(table);
-			int numberOfAttributes = tbSchema.getNumberOfAttributes();
-			explanatorySet = new LinkedList<Attribute>();
-			for (int i = 0; i < numberOfAttributes; i++) {
-				Attribute currentAttribute;
-				Column currentColumn = tbSchema.getColumn(i);
-				String currentColumnName = currentColumn.getColumnName();
-				// Controlla il tipo dell'attributo corrente
-				if (currentColumn.isNumber()) {
-					double min = (double) TableData.getAggregateColumnValue(table, currentColumn, QUERY_TYPE.MIN);
-					double max = (double) TableData.getAggregateColumnValue(table, currentColumn, QUERY_TYPE.MAX);
-					currentAttribute = new ContinuousAttribute(currentColumnName, i, min, max);
-				} else {
-					TreeSet<Object> currentAttributeObj = (TreeSet<Object>) TableData.getDistinctColumnValues(table,
-							currentColumn);
-					// Converte il TreeSet di Object in un TreeSet di String
-					TreeSet<String> currentAttributeValues = new TreeSet<>();
-					for (Object o : currentAttributeObj) {
-						currentAttributeValues.add(o.toString());
-					}
-					currentAttribute = new DiscreteAttribute(currentColumnName, i, currentAttributeValues);
-				}
-				explanatorySet.add(currentAttribute);
-			}
-
-		} catch (SQLException | EmptySetException | NoValueException e) {
-			System.out.println("Data loading error: " + e.getMessage());
-		}
-	}
-
-	/**
-	 * Restituisce il numero di tuple presenti nella tabella.
-	 * 
-	 * @return numero di tuple
-	 */
-	public int getNumberOfTuples() {
-		return numberOfTuples;
-	}
-
-	/**
-	 * Restituisce il numero di attributi della tabella.
-	 * 
-	 * @return numero di attributi
-	 */
-	public int getNumberOfAttributes() {
-		return explanatorySet.size();
-	}
-
-	/**
-	 * Restituisce lo schema della tabella.
-	 * 
-	 * @return lista di attributi rappresentante lo schema della tabella
-	 */
-	List<Attribute> getAttributeSchema() {
-		return explanatorySet;
-	}
-
-	/**
-	 * Restituisce il valore presente nella riga row della colonna column.
-	 * 
-	 * @param row
-	 *            riga del valore richiesto
-	 * @param column
-	 *            colonna del valore richiesto
-	 * @return valore nella riga row della colonna column
-	 */
-	public Object getAttributeValue(int row, int column) {
-		return data.get(row).get(column);
-	}
-
-	/**
-	 * Restituisce la stringa rappresentante i dati caricati dalla tabella.
-	 */
-	public String toString() {
-		String header = "";
-		for (int i = 0; i < getNumberOfAttributes(); i++) {
-			header += explanatorySet.get(i);
-			if (i != getNumberOfAttributes() - 1)
-				header += ", ";
-		}
-		header += "\n";
-
-		String dataValues = "";
-		Iterator<Row> e = data.iterator();
-		int row = 0;
-		while (e.hasNext()) {
-			dataValues += ++row + ": " + e.next().toString() + "\n";
-		}
-
-		return header + dataValues;
-	}
-
-	/**
-	 * Restituisce la tupla della riga row.
-	 * 
-	 * @param row
-	 *            riga della tupla da restituire
-	 * @return tupla della riga row
-	 */
-	public Tuple getItemSet(int row) {
-		Tuple tuple = new Tuple(getNumberOfAttributes());
-		Iterator<Attribute> e = getAttributeSchema().iterator();
-		while (e.hasNext()) {
-			Attribute currentAttribute = e.next();
-			Item currentItem = null;
-			if (currentAttribute instanceof DiscreteAttribute)
-				currentItem = new DiscreteItem(currentAttribute,
-						(String) getAttributeValue(row, currentAttribute.getId()));
-			else if (currentAttribute instanceof ContinuousAttribute)
-				currentItem = new ContinuousItem(currentAttribute,
-						(Double) getAttributeValue(row, currentAttribute.getId()));
-			tuple.add(currentItem, currentAttribute.getId());
-		}
-		return tuple;
-	}
-
-	/**
-	 * Sceglie casualmente k tuple come centroidi. Restituisce un array contenente
-	 * gli indici delle tuple scelte.
-	 * 
-	 * @param k
-	 *            numero di centroidi da scegliere
-	 * @return array di indici delle tuple scelte
-	 * @throws OutOfRangeSampleSizeException
-	 *             se k  minore uguale di 0 o k maggiore del numero di tuple
-	 */
-	public int[] sampling(int k) throws OutOfRangeSampleSizeException {
-		if (k <= 0 || k > numberOfTuples)
-			throw new OutOfRangeSampleSizeException();
-
-		int centroidIndexes[] = new int[k];
-		// choose k random different centroids in data.
-		Random rand = new Random();
-		rand.setSeed(System.currentTimeMillis());
-		for (int i = 0; i < k; i++) {
-			boolean found = false;
-			int c;
-			do {
-				found = false;
-				c = rand.nextInt(getNumberOfTuples());
-				// verify that centroid[c] is not equal to a centroid already stored in
-				// CentroidIndexes
-				for (int j = 0; j < i; j++)
-					if (compare(centroidIndexes[j], c)) {
-						found = true;
-						break;
-					}
-			} while (found);
-			centroidIndexes[i] = c;
-		}
-		return centroidIndexes;
-	}
-
-	/**
-	 * Restituisce vero se le due righe di data contengono gli stessi valori, falso
-	 * altrimenti.
-	 * 
-	 * @param row1
-	 *            prima riga da confrontare
-	 * @param row2
-	 *            seconda riga da confrontare
-	 * @return true se le due righe sono uguali, false altrimenti.
-	 */
-	private boolean compare(int row1, int row2) {
-		boolean equals = true;
-		for (int j = 0; j < getNumberOfAttributes(); j++) {
-			if (!getAttributeValue(row1, j).equals(getAttributeValue(row2, j)))
-				equals = false;
-		}
-		return equals;
-	}
-
-	/**
-	 * Determina il valore che occorre pi frequentemente per l'attributo attribute
-	 * nel sottoinsieme di dati individuato da idList.
-	 * 
-	 * @param idList
-	 *            sottoinsime di dati da considerare
-	 * @param attribute
-	 *            attributo per cui cercare il valore pi frequente
-	 * @return valore pi frequente
-	 */
-	Object computePrototype(Set<Integer> idList, Attribute attribute) {
-		if (attribute instanceof DiscreteAttribute)
-			return computePrototype(idList, (DiscreteAttribute) attribute);
-		else if (attribute instanceof ContinuousAttribute)
-			return computePrototype(idList, (ContinuousAttribute) attribute);
-
-		return null;
-	}
-
-	/**
-	 * Determina il valore che occorre pi frequentemente per l'attributo discreto
-	 * attribute nel sottoinsieme di dati individuato da idList.
-	 * 
-	 * @param idList
-	 *            sottoinsime di dati da considerare
-	 * @param attribute
-	 *            attributo per cui cercare il valore pi frequente
-	 * @return valore pi frequente
-	 */
-	String computePrototype(Set<Integer> idList, DiscreteAttribute attribute) {
-		String mostFrequentValue = "";
-		int frequencyOfMostFrequentValue = 0;
-		Iterator<String> e = attribute.iterator();
-
-		while (e.hasNext()) {
-			String currentValue = e.next();
-			int currentFrequency = attribute.frequency(this, idList, currentValue);
-			if (currentFrequency > frequencyOfMostFrequentValue) {
-				mostFrequentValue = currentValue;
-				frequencyOfMostFrequentValue = currentFrequency;
-			}
-		}
-
-		return mostFrequentValue;
-	}
-
-	/**
-	 * Determina il valore che occorre pi frequentemente per l'attributo continuto
-	 * attribute nel sottoinsieme di dati individuato da idList.
-	 * 
-	 * @param idList
-	 *            sottoinsime di dati da considerare
-	 * @param attribute
-	 *            attributo per cui cercare il valore pi frequente
-	 * @return valore pi frequente
-	 */
-	Double computePrototype(Set<Integer> idList, ContinuousAttribute attribute) {
-		double total = 0;
-		int numberOfValues = 0;
-
-		for (int i = 0; i < getNumberOfTuples(); i++) {
-			if (idList.contains(i)) {
-				total += (Double) getAttributeValue(i, attribute.getId());
-				numberOfValues++;
-			}
-		}
-
-		return total / numberOfValues;
-	}
+package data;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import database.EmptySetException;
+import database.RowHandler;
+import database.TableData;
+import database.TableSchema;
+import database.TableSchema.Column;
+
+/**
+ * Questa classe rappresenta i dati estratti da un database.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class Data {
+
+	// Valori normalizzati degli attributi continui, memorizzati per colonna (null
+	// in corrispondenza degli attributi discreti)
+	private double[][] continuousValues;
+	// Codici dei valori degli attributi discreti, memorizzati per colonna (null in
+	// corrispondenza degli attributi continui)
+	private int[][] discreteValues;
+	// cardinalità dellinsieme di tuple (numero di righe in data)
+	private int numberOfTuples;
+	// peso di ciascuna tupla: il numero di righe della tabella uguali alla tupla
+	// oppure la somma dei valori della colonna dei pesi di tali righe (null se
+	// ogni tupla ha peso 1)
+	private double[] weights;
+	// un vettore degli attributi in ciascuna tupla (schema della tabella di dati)
+	private List<Attribute> explanatorySet;
+
+	// numero di righe per cui vengono inizialmente allocate le colonne durante il
+	// caricamento
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Modalità di eliminazione delle tuple duplicate usata se non specificata,
+	 * configurabile tramite la proprietà di sistema kmeans.deduplication.
+	 */
+	public static final DEDUPLICATION_TYPE DEFAULT_DEDUPLICATION = DEDUPLICATION_TYPE
+			.valueOf(System.getProperty("kmeans.deduplication", DEDUPLICATION_TYPE.HASH.name()).toUpperCase());
+
+	/**
+	 * Istanzia l'oggetto e carica i dati dalla tabella.
+	 * 
+	 * @param table
+	 *            nome della tabella da cui caricare i dati
+	 * @throws SQLException
+	 *             se la tabella o la colonna dei pesi non esistono, se una riga
+	 *             ha un peso negativo o non finito o se ci sono errori nella
+	 *             lettura delle righe
+	 * @throws EmptySetException
+	 *             se la tabella è vuota
+	 */
+	public Data(String table) throws SQLException, EmptySetException {
+		this(table, null);
+	}
+
+	/**
+	 * Istanzia l'oggetto e carica i dati dalla tabella, usando la colonna
+	 * weightColumn come peso delle righe.
+	 * 
+	 * @param table
+	 *            nome della tabella da cui caricare i dati
+	 * @param weightColumn
+	 *            nome della colonna numerica con il peso di ciascuna riga, oppure
+	 *            null se ogni riga ha peso 1
+	 * @throws SQLException
+	 *             se la tabella o la colonna dei pesi non esistono, se una riga
+	 *             ha un peso negativo o non finito o se ci sono errori nella
+	 *             lettura delle righe
+	 * @throws EmptySetException
+	 *             se la tabella è vuota
+	 */
+	public Data(String table, String weightColumn) throws SQLException, EmptySetException {
+		this(table, weightColumn, TableData.DEFAULT_FETCH_SIZE, DEFAULT_DEDUPLICATION);
+	}
+
+	/**
+	 * Istanzia l'oggetto e carica i dati dalla tabella, leggendo fetchSize righe a
+	 * ogni accesso al database. Le righe vengono scritte direttamente nelle
+	 * colonne man mano che sono lette, senza copie intermedie; i domini degli
+	 * attributi (estremi dei valori continui e valori distinti di quelli discreti)
+	 * sono ricavati dalla stessa scansione, senza ulteriori interrogazioni.
+	 * 
+	 * Con {@link DEDUPLICATION_TYPE#HASH} vengono lette tutte le righe della
+	 * tabella e ciascuna riga già caricata viene scartata, sommandone il peso a
+	 * quello della tupla uguale, con un costo lineare nel numero di righe. Con
+	 * {@link DEDUPLICATION_TYPE#GROUP_BY} i pesi delle tuple distinte sono
+	 * calcolati dal database. Se è indicata la colonna dei pesi,
+	 * {@link DEDUPLICATION_TYPE#DATABASE} equivale a
+	 * {@link DEDUPLICATION_TYPE#GROUP_BY}, così da non perdere i pesi.
+	 * 
+	 * @param table
+	 *            nome della tabella da cui caricare i dati
+	 * @param weightColumn
+	 *            nome della colonna numerica con il peso di ciascuna riga, oppure
+	 *            null se ogni riga ha peso 1; la colonna non è un attributo dei
+	 *            dati
+	 * @param fetchSize
+	 *            numero di righe lette a ogni accesso al database
+	 * @param deduplication
+	 *            modalità di eliminazione delle tuple duplicate
+	 * @throws SQLException
+	 *             se la tabella o la colonna dei pesi non esistono, se una riga
+	 *             ha un peso negativo o non finito o se ci sono errori nella
+	 *             lettura delle righe
+	 * @throws EmptySetException
+	 *             se la tabella è vuota
+	 */
+	public Data(String table, String weightColumn, int fetchSize, DEDUPLICATION_TYPE deduplication)
+			throws SQLException, EmptySetException {
+		this(table, weightColumn, fetchSize, deduplication, 0, null);
+	}
+
+	/**
+	 * Istanzia l'oggetto e carica un campione casuale uniforme di sampleSize righe
+	 * della tabella, leggendo fetchSize righe a ogni accesso al database. Il
+	 * campione viene estratto con un'unica scansione, sostituendo le righe già
+	 * campionate con probabilità decrescente (campionamento a serbatoio), così che
+	 * la memoria occupata dipenda da sampleSize e non dal numero di righe della
+	 * tabella. Le righe del campione non vengono deduplicate. I domini degli
+	 * attributi sono ricavati da tutte le righe lette, anche da quelle escluse
+	 * dal campione.
+	 * 
+	 * @param table
+	 *            nome della tabella da cui caricare i dati
+	 * @param weightColumn
+	 *            nome della colonna numerica con il peso di ciascuna riga, oppure
+	 *            null se ogni riga ha peso 1
+	 * @param fetchSize
+	 *            numero di righe lette a ogni accesso al database
+	 * @param sampleSize
+	 *            numero massimo di righe del campione
+	 * @param random
+	 *            generatore di numeri casuali da cui dipende il campione
+	 * @throws SQLException
+	 *             se la tabella o la colonna dei pesi non esistono, se una riga
+	 *             ha un peso negativo o non finito o se ci sono errori nella
+	 *             lettura delle righe
+	 * @throws EmptySetException
+	 *             se la tabella è vuota
+	 */
+	public Data(String table, String weightColumn, int fetchSize, int sampleSize, Random random)
+			throws SQLException, EmptySetException {
+		this(table, weightColumn, fetchSize, DEDUPLICATION_TYPE.NONE, sampleSize, random);
+	}
+
+	/**
+	 * Istanzia l'oggetto e carica i dati dalla tabella: tutte le righe se
+	 * sampleSize è 0, altrimenti un campione di sampleSize righe estratto con
+	 * random. Se il caricamento fallisce non viene creato alcun oggetto: nessun
+	 * chiamante può ottenere dati caricati solo in parte.
+	 */
+	private Data(String table, String weightColumn, int fetchSize, DEDUPLICATION_TYPE deduplication,
+			int sampleSize, Random random) throws SQLException, EmptySetException {
+		TableSchema tbSchema = TableSchema.forTable(table);
+		Column weight = null;
+		if (weightColumn != null) {
+			weight = tbSchema.getColumn(weightColumn);
+			if (weight == null || !weight.isNumber())
+				throw new SQLException("Invalid weight column: " + weightColumn);
+			if (deduplication == DEDUPLICATION_TYPE.DATABASE)
+				deduplication = DEDUPLICATION_TYPE.GROUP_BY;
+		}
+		List<Column> columns = new ArrayList<Column>(tbSchema.getSchema());
+		columns.remove(weight);
+		int numberOfAttributes = columns.size();
+
+		// Carica le tuple distinte della tabella direttamente nelle colonne: i valori
+		// continui sono memorizzati cosi' come letti, quelli discreti con un codice
+		// provvisorio assegnato nell'ordine in cui i valori compaiono
+		continuousValues = new double[numberOfAttributes][];
+		discreteValues = new int[numberOfAttributes][];
+		double[] min = new double[numberOfAttributes];
+		double[] max = new double[numberOfAttributes];
+		Arrays.fill(min, Double.POSITIVE_INFINITY);
+		Arrays.fill(max, Double.NEGATIVE_INFINITY);
+		List<Map<String, Integer>> provisionalCodes = new ArrayList<Map<String, Integer>>(numberOfAttributes);
+		for (int column = 0; column < numberOfAttributes; column++) {
+			if (columns.get(column).isNumber()) {
+				continuousValues[column] = new double[INITIAL_CAPACITY];
+				provisionalCodes.add(null);
+			} else {
+				discreteValues[column] = new int[INITIAL_CAPACITY];
+				provisionalCodes.add(new HashMap<String, Integer>());
+			}
+		}
+		numberOfTuples = 0;
+		RowIndex rowIndex = null;
+		if (deduplication == DEDUPLICATION_TYPE.HASH)
+			rowIndex = new RowIndex(this, numberOfAttributes);
+		if (deduplication == DEDUPLICATION_TYPE.HASH || deduplication == DEDUPLICATION_TYPE.GROUP_BY
+				|| weight != null)
+			weights = new double[INITIAL_CAPACITY];
+		// Il peso, se letto dal database, segue i valori degli attributi
+		boolean readWeight = deduplication == DEDUPLICATION_TYPE.GROUP_BY || weight != null;
+		RowIndex index = rowIndex;
+		// numero di righe lette dal database
+		long[] scannedRows = { 0 };
+		RowHandler handler = resultSet -> {
+			// Il peso viene verificato prima di memorizzare la riga: un peso non valido
+			// interrompe il caricamento, che fallisce senza restituire dati
+			double rowWeight = 1;
+			if (readWeight) {
+				rowWeight = resultSet.getDouble(numberOfAttributes + 1);
+				if (!(rowWeight >= 0) || Double.isInfinite(rowWeight))
+					throw new SQLException("Invalid weight in column " + weightColumn + ": " + rowWeight);
+			}
+
+			// Riga in cui memorizzare i valori letti, -1 se esclusa dal campione
+			int row = numberOfTuples;
+			if (sampleSize > 0 && numberOfTuples == sampleSize) {
+				long position = (long) (random.nextDouble() * (scannedRows[0] + 1));
+				row = position < sampleSize ? (int) position : -1;
+			}
+			scannedRows[0]++;
+			if (row == capacity())
+				allocateColumns(capacity() + (capacity() >> 1));
+			for (int column = 0; column < numberOfAttributes; column++) {
+				if (continuousValues[column] != null) {
+					double value = resultSet.getDouble(column + 1);
+					if (row >= 0)
+						continuousValues[column][row] = value;
+					min[column] = Math.min(min[column], value);
+					max[column] = Math.max(max[column], value);
+				} else {
+					Map<String, Integer> codes = provisionalCodes.get(column);
+					String value = resultSet.getString(column + 1);
+					Integer code = codes.get(value);
+					if (code == null) {
+						code = codes.size();
+						codes.put(value, code);
+					}
+					if (row >= 0)
+						discreteValues[column][row] = code;
+				}
+			}
+
+			if (index != null) {
+				int duplicate = index.add(numberOfTuples);
+				if (duplicate >= 0) {
+					// La riga verrà sovrascritta dalla successiva
+					weights[duplicate] += rowWeight;
+					return;
+				}
+			}
+			if (weights != null && row >= 0)
+				weights[row] = rowWeight;
+			if (row == numberOfTuples)
+				numberOfTuples++;
+		};
+		switch (deduplication) {
+		case DATABASE:
+			TableData.scanDistinctTransaction(tbSchema, columns, fetchSize, handler);
+			break;
+		case GROUP_BY:
+			TableData.scanGroupedTransaction(tbSchema, columns, weight, fetchSize, handler);
+			break;
+		default:
+			TableData.scanTransaction(tbSchema, columns, weight, fetchSize, handler);
+		}
+		allocateColumns(numberOfTuples);
+		// Se ogni tupla ha peso 1 i pesi non servono
+		if (weights != null) {
+			boolean repeated = false;
+			for (int row = 0; row < numberOfTuples && !repeated; row++)
+				repeated = weights[row] != 1;
+			if (!repeated)
+				weights = null;
+		}
+
+		// Inizializza explanatorySet con i domini ricavati dalla scansione,
+		// normalizzando i valori continui e sostituendo i codici provvisori con quelli
+		// dell'ordine lessicografico
+		explanatorySet = new ArrayList<Attribute>(numberOfAttributes);
+		for (int column = 0; column < numberOfAttributes; column++) {
+			String columnName = columns.get(column).getColumnName();
+			if (continuousValues[column] != null) {
+				ContinuousAttribute attribute = new ContinuousAttribute(columnName, column, min[column],
+						max[column]);
+				double[] values = continuousValues[column];
+				for (int row = 0; row < numberOfTuples; row++)
+					values[row] = attribute.getScaledValue(values[row]);
+				explanatorySet.add(attribute);
+			} else {
+				Map<String, Integer> codes = provisionalCodes.get(column);
+				DiscreteAttribute attribute = new DiscreteAttribute(columnName, column,
+						new TreeSet<String>(codes.keySet()));
+				int[] finalCodes = new int[codes.size()];
+				for (Map.Entry<String, Integer> entry : codes.entrySet())
+					finalCodes[entry.getValue()] = attribute.getCode(entry.getKey());
+				int[] values = discreteValues[column];
+				for (int row = 0; row < numberOfTuples; row++)
+					values[row] = finalCodes[values[row]];
+				explanatorySet.add(attribute);
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di righe che le colonne possono contenere.
+	 * 
+	 * @return capacità delle colonne
+	 */
+	private int capacity() {
+		for (int column = 0; column < continuousValues.length; column++) {
+			if (continuousValues[column] != null)
+				return continuousValues[column].length;
+			else if (discreteValues[column] != null)
+				return discreteValues[column].length;
+		}
+		return 0;
+	}
+
+	/**
+	 * Porta la capacità di tutte le colonne a capacity righe, conservando le righe
+	 * già caricate.
+	 * 
+	 * @param capacity
+	 *            nuova capacità delle colonne
+	 */
+	private void allocateColumns(int capacity) {
+		if (capacity == capacity())
+			return;
+		for (int column = 0; column < continuousValues.length; column++) {
+			if (continuousValues[column] != null)
+				continuousValues[column] = Arrays.copyOf(continuousValues[column], capacity);
+			else
+				discreteValues[column] = Arrays.copyOf(discreteValues[column], capacity);
+		}
+		if (weights != null)
+			weights = Arrays.copyOf(weights, capacity);
+	}
+
+	/**
+	 * Restituisce il numero di tuple presenti nella tabella.
+	 * 
+	 * @return numero di tuple
+	 */
+	public int getNumberOfTuples() {
+		return numberOfTuples;
+	}
+
+	/**
+	 * Restituisce una stima della memoria, in byte, occupata dai valori caricati e
+	 * dai domini degli attributi discreti.
+	 * 
+	 * @return memoria occupata stimata
+	 */
+	public long getSizeInBytes() {
+		// Intestazione di un array e di un oggetto, riferimento
+		final int arrayHeader = 16, objectHeader = 16, reference = 8;
+		long size = objectHeader + 2L * (arrayHeader + (long) reference * explanatorySet.size());
+		if (weights != null)
+			size += arrayHeader + 8L * weights.length;
+		for (Attribute attribute : explanatorySet) {
+			int column = attribute.getId();
+			if (continuousValues[column] != null) {
+				size += arrayHeader + 8L * continuousValues[column].length;
+			} else {
+				size += arrayHeader + 4L * discreteValues[column].length;
+				for (String value : (DiscreteAttribute) attribute)
+					size += 2 * reference + objectHeader + arrayHeader + value.length();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Restituisce il peso della tupla della riga row: il numero di righe della
+	 * tabella uguali alla tupla oppure la somma dei loro valori nella colonna dei
+	 * pesi.
+	 * 
+	 * @param row
+	 *            riga della tupla
+	 * @return peso della tupla
+	 */
+	public double getWeight(int row) {
+		return weights == null ? 1 : weights[row];
+	}
+
+	/**
+	 * Restituisce vero se almeno una tupla ha peso diverso da 1.
+	 * 
+	 * @return true se le tuple sono pesate
+	 */
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	/**
+	 * Restituisce la somma dei pesi delle tuple.
+	 * 
+	 * @return peso complessivo delle tuple
+	 */
+	public double getTotalWeight() {
+		if (weights == null)
+			return numberOfTuples;
+		double total = 0;
+		for (int row = 0; row < numberOfTuples; row++)
+			total += weights[row];
+		return total;
+	}
+
+	/**
+	 * Restituisce i pesi delle tuple.
+	 * 
+	 * @return pesi delle tuple, indicizzati per riga, oppure null se ogni tupla ha
+	 *         peso 1
+	 */
+	double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Restituisce il numero di attributi della tabella.
+	 * 
+	 * @return numero di attributi
+	 */
+	public int getNumberOfAttributes() {
+		return explanatorySet.size();
+	}
+
+	/**
+	 * Restituisce lo schema della tabella.
+	 * 
+	 * @return lista di attributi rappresentante lo schema della tabella
+	 */
+	List<Attribute> getAttributeSchema() {
+		return explanatorySet;
+	}
+
+	/**
+	 * Restituisce il valore presente nella riga row della colonna column.
+	 * 
+	 * @param row
+	 *            riga del valore richiesto
+	 * @param column
+	 *            colonna del valore richiesto
+	 * @return valore nella riga row della colonna column
+	 */
+	public Object getAttributeValue(int row, int column) {
+		Attribute attribute = explanatorySet.get(column);
+		if (attribute instanceof ContinuousAttribute)
+			return ((ContinuousAttribute) attribute).getUnscaledValue(continuousValues[column][row]);
+		else
+			return ((DiscreteAttribute) attribute).getValue(discreteValues[column][row]);
+	}
+
+	/**
+	 * Restituisce il valore normalizzato presente nella riga row della colonna
+	 * continua column.
+	 * 
+	 * @param row
+	 *            riga del valore richiesto
+	 * @param column
+	 *            colonna continua del valore richiesto
+	 * @return valore normalizzato nella riga row della colonna column
+	 */
+	public double getContinuousValue(int row, int column) {
+		return continuousValues[column][row];
+	}
+
+	/**
+	 * Restituisce il codice del valore presente nella riga row della colonna
+	 * discreta column.
+	 * 
+	 * @param row
+	 *            riga del valore richiesto
+	 * @param column
+	 *            colonna discreta del valore richiesto
+	 * @return codice del valore nella riga row della colonna column
+	 */
+	public int getDiscreteValue(int row, int column) {
+		return discreteValues[column][row];
+	}
+
+	/**
+	 * Restituisce i valori normalizzati della colonna continua column.
+	 * 
+	 * @param column
+	 *            colonna continua
+	 * @return valori normalizzati della colonna, indicizzati per riga
+	 */
+	double[] getContinuousColumn(int column) {
+		return continuousValues[column];
+	}
+
+	/**
+	 * Restituisce i codici dei valori della colonna discreta column.
+	 * 
+	 * @param column
+	 *            colonna discreta
+	 * @return codici dei valori della colonna, indicizzati per riga
+	 */
+	int[] getDiscreteColumn(int column) {
+		return discreteValues[column];
+	}
+
+	/**
+	 * Restituisce la stringa rappresentante i dati caricati dalla tabella.
+	 */
+	public String toString() {
+		String header = "";
+		for (int i = 0; i < getNumberOfAttributes(); i++) {
+			header += explanatorySet.get(i);
+			if (i != getNumberOfAttributes() - 1)
+				header += ", ";
+		}
+		header += "\n";
+
+		String dataValues = "";
+		for (int row = 0; row < getNumberOfTuples(); row++) {
+			dataValues += (row + 1) + ": ";
+			for (int j = 0; j < getNumberOfAttributes(); j++)
+				dataValues += getAttributeValue(row, j) + " ";
+			dataValues += "\n";
+		}
+
+		return header + dataValues;
+	}
+
+	/**
+	 * Restituisce la tupla della riga row.
+	 * 
+	 * @param row
+	 *            riga della tupla da restituire
+	 * @return tupla della riga row
+	 */
+	public Tuple getItemSet(int row) {
+		Tuple tuple = new Tuple(getNumberOfAttributes());
+		Iterator<Attribute> e = getAttributeSchema().iterator();
+		while (e.hasNext()) {
+			Attribute currentAttribute = e.next();
+			Item currentItem = null;
+			if (currentAttribute instanceof DiscreteAttribute)
+				currentItem = new DiscreteItem((DiscreteAttribute) currentAttribute,
+						discreteValues[currentAttribute.getId()][row]);
+			else if (currentAttribute instanceof ContinuousAttribute)
+				currentItem = new ContinuousItem((ContinuousAttribute) currentAttribute,
+						(Double) getAttributeValue(row, currentAttribute.getId()),
+						continuousValues[currentAttribute.getId()][row]);
+			tuple.add(currentItem, currentAttribute.getId());
+		}
+		return tuple;
+	}
+
+	/**
+	 * Sceglie casualmente k tuple come centroidi. Restituisce un array contenente
+	 * gli indici delle tuple scelte.
+	 * 
+	 * @param k
+	 *            numero di centroidi da scegliere
+	 * @return array di indici delle tuple scelte
+	 * @throws OutOfRangeSampleSizeException
+	 *             se k è minore uguale di 0 o k maggiore del numero di tuple
+	 */
+	public int[] sampling(int k) throws OutOfRangeSampleSizeException {
+		return sampling(k, new Random(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Sceglie casualmente k tuple come centroidi, estraendole con il generatore
+	 * rand con probabilità proporzionale al loro peso. Restituisce un array
+	 * contenente gli indici delle tuple scelte.
+	 * 
+	 * @param k
+	 *            numero di centroidi da scegliere
+	 * @param rand
+	 *            generatore di numeri casuali
+	 * @return array di indici delle tuple scelte
+	 * @throws OutOfRangeSampleSizeException
+	 *             se k è minore uguale di 0 o k maggiore del numero di tuple
+	 */
+	public int[] sampling(int k, Random rand) throws OutOfRangeSampleSizeException {
+		if (k <= 0 || k > numberOfTuples)
+			throw new OutOfRangeSampleSizeException();
+
+		// Pesi cumulati delle tuple, per estrarle in proporzione al peso
+		double[] cumulative = null;
+		if (weights != null) {
+			cumulative = new double[numberOfTuples];
+			double total = 0;
+			int positive = 0;
+			for (int row = 0; row < numberOfTuples; row++) {
+				total += weights[row];
+				cumulative[row] = total;
+				if (weights[row] > 0)
+					positive++;
+			}
+			if (k > positive)
+				throw new OutOfRangeSampleSizeException();
+		}
+
+		int centroidIndexes[] = new int[k];
+		// choose k random different centroids in data.
+		for (int i = 0; i < k; i++) {
+			boolean found = false;
+			int c;
+			do {
+				found = false;
+				c = cumulative == null ? rand.nextInt(getNumberOfTuples()) : sampleRow(cumulative, rand);
+				// verify that centroid[c] is not equal to a centroid already stored in
+				// CentroidIndexes
+				for (int j = 0; j < i; j++)
+					if (compare(centroidIndexes[j], c)) {
+						found = true;
+						break;
+					}
+			} while (found);
+			centroidIndexes[i] = c;
+		}
+		return centroidIndexes;
+	}
+
+	/**
+	 * Estrae una riga con probabilità proporzionale al suo peso.
+	 * 
+	 * @param cumulative
+	 *            pesi cumulati delle righe
+	 * @param rand
+	 *            generatore di numeri casuali
+	 * @return indice della riga estratta
+	 */
+	private int sampleRow(double[] cumulative, Random rand) {
+		double target = rand.nextDouble() * cumulative[cumulative.length - 1];
+		// Prima riga con peso cumulato maggiore di target
+		int low = 0, high = cumulative.length - 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (cumulative[middle] > target)
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Restituisce vero se le due righe di data contengono gli stessi valori, falso
+	 * altrimenti.
+	 * 
+	 * @param row1
+	 *            prima riga da confrontare
+	 * @param row2
+	 *            seconda riga da confrontare
+	 * @return true se le due righe sono uguali, false altrimenti.
+	 */
+	private boolean compare(int row1, int row2) {
+		boolean equals = true;
+		for (int j = 0; j < getNumberOfAttributes() && equals; j++) {
+			if (continuousValues[j] != null)
+				equals = continuousValues[j][row1] == continuousValues[j][row2];
+			else
+				equals = discreteValues[j][row1] == discreteValues[j][row2];
+		}
+		return equals;
+	}
 }
\ No newline at end of file
@@ -1,80 +1,110 @@
-package data;
-
-import java.util.Set;
-import java.util.Iterator;
-import java.util.TreeSet;
-
-/**
- * Questa classe estende {@linkplain Attribute} e rappresenta un attributo
- * discreto.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class DiscreteAttribute extends Attribute implements Iterable<String> {
-
-	/*
-	 * Set di oggetti String, uno per ciascun valore del dominio discreto. I valori
-	 * del dominio sono memorizzati in values seguendo un ordine lessicografico.
-	 */
-	private TreeSet<String> values;
-
-	/**
-	 * Istanzia l'oggetto e inzializza il nome, l'id e l'insieme di valori che
-	 * l'attributo pu assumere.
-	 * 
-	 * @param name
-	 *            nome dell'attributo
-	 * @param id
-	 *            id dell'attributo
-	 * @param values
-	 *            insieme dei valori che l'attributo pu assumere
-	 */
-	public DiscreteAttribute(String name, int id, TreeSet<String> values) {
-		super(name, id);
-		this.values = values;
-	}
-
-	/**
-	 * Restituisce il numero di valori diversi (ossia la cardinalit dell'insieme)
-	 * che l'attributo pu assumere.
-	 * 
-	 * @return numero di valori distinti
-	 */
-	int getNumberOfDistinctValues() {
-		return values.size();
-	}
-
-	/**
-	 * Determina il numero di volte che il valore v compare in corrispondenza
-	 * dell'attributo corrente negli tuple memorizzate in data e indicizzate (per
-	 * riga) da idList.
-	 * 
-	 * @param data
-	 *            dati in cui cercare v
-	 * @param idList
-	 *            indici delle tuple da considerare
-	 * @param v
-	 *            valore di cui contare le occorrenze
-	 * @return numero di occorrenze di v
-	 */
-	int frequency(Data data, Set<Integer> idList, String v) {
-		int frequency = 0;
-		for (int i = 0; i < data.getNumberOfTuples(); i++) {
-			if (idList.contains(i) == true) {
-				if (data.getAttributeValue(i, this.getId()).equals(v))
-					frequency++;
-			}
-		}
-
-		return frequency;
-	}
-
-	@Override
-	/**
-	 * Restituisce l'iterator sugli elementi dell'insieme di valori.
-	 */
-	public Iterator<String> iterator() {
-		return values.iterator();
-	}
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Questa classe estende {@linkplain Attribute} e rappresenta un attributo
+ * discreto.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class DiscreteAttribute extends Attribute implements Iterable<String> {
+
+	/**
+	 * Tipo degli attributi discreti nel formato binario del server.
+	 */
+	public static final byte TYPE = 1;
+
+	/*
+	 * Dizionario dei valori del dominio, in ordine lessicografico: il codice di un
+	 * valore e' la sua posizione nel dizionario.
+	 */
+	private String[] dictionary;
+	/*
+	 * Codice di ciascun valore del dominio, per la ricerca del codice di un valore
+	 * in tempo costante.
+	 */
+	private HashMap<String, Integer> codes;
+
+	/**
+	 * Istanzia l'oggetto e inzializza il nome, l'id e l'insieme di valori che
+	 * l'attributo può assumere. A ciascun valore viene assegnato come codice la
+	 * sua posizione nell'ordine lessicografico dei valori.
+	 * 
+	 * @param name
+	 *            nome dell'attributo
+	 * @param id
+	 *            id dell'attributo
+	 * @param values
+	 *            insieme dei valori che l'attributo può assumere
+	 */
+	public DiscreteAttribute(String name, int id, TreeSet<String> values) {
+		super(name, id);
+		dictionary = values.toArray(new String[values.size()]);
+		codes = new HashMap<String, Integer>(values.size() * 2);
+		for (int code = 0; code < dictionary.length; code++)
+			codes.put(dictionary[code], code);
+	}
+
+	/**
+	 * Restituisce il numero di valori diversi (ossia la cardinalità dell'insieme)
+	 * che l'attributo può assumere.
+	 * 
+	 * @return numero di valori distinti
+	 */
+	int getNumberOfDistinctValues() {
+		return dictionary.length;
+	}
+
+	/**
+	 * Restituisce il codice associato al valore v del dominio.
+	 * 
+	 * @param v
+	 *            valore del dominio
+	 * @return codice del valore, -1 se v non appartiene al dominio
+	 */
+	int getCode(String v) {
+		Integer code = codes.get(v);
+		return code == null ? -1 : code;
+	}
+
+	/**
+	 * Restituisce il valore del dominio associato al codice code.
+	 * 
+	 * @param code
+	 *            codice del valore
+	 * @return valore del dominio
+	 */
+	String getValue(int code) {
+		return dictionary[code];
+	}
+
+	@Override
+	/**
+	 * Restituisce l'iterator sugli elementi dell'insieme di valori, in ordine
+	 * lessicografico.
+	 */
+	public Iterator<String> iterator() {
+		return Collections.unmodifiableList(Arrays.asList(dictionary)).iterator();
+	}
+
+	/**
+	 * Scrive su out il nome, il tipo {@link DiscreteAttribute#TYPE} e il
+	 * dizionario dei valori dell'attributo, nell'ordine dei codici.
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		super.write(out);
+		out.writeByte(TYPE);
+		out.writeInt(dictionary.length);
+		for (String value : dictionary)
+			out.writeUTF(value);
+	}
+}
@@ -1,32 +1,94 @@
-package data;
-
-/**
- * Estende la classe {@link Item}, rappresentando una coppia
- * {@link DiscreteAttribute}-valore discreto.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class DiscreteItem extends Item {
-
-	/**
-	 * Istanzia l'oggetto invocando {@link Item#Item(Attribute, Object)}
-	 * 
-	 * @param attribute
-	 *            attributo dell'item
-	 * @param value
-	 *            valore dell'item
-	 */
-	DiscreteItem(Attribute attribute, String value) {
-		super(attribute, value);
-	}
-
-	/**
-	 * Restituisce 0 se i due oggetti sono uguali, 1 altrimenti.
-	 */
-	@Override
-	double distance(Object a) {
-		return getValue().equals(a.toString()) ? 0 : 1;
-	}
-
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Estende la classe {@link Item}, rappresentando una coppia
+ * {@link DiscreteAttribute}-valore discreto.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class DiscreteItem extends Item {
+	// codice del valore nel dizionario dell'attributo
+	private int code;
+
+	/**
+	 * Istanzia l'oggetto invocando {@link Item#Item(Attribute, Object)}
+	 * 
+	 * @param attribute
+	 *            attributo dell'item
+	 * @param value
+	 *            valore dell'item
+	 */
+	DiscreteItem(Attribute attribute, String value) {
+		super(attribute, value);
+		code = ((DiscreteAttribute) attribute).getCode(value);
+	}
+
+	/**
+	 * Istanzia l'oggetto con il valore dell'attributo associato al codice code.
+	 * 
+	 * @param attribute
+	 *            attributo dell'item
+	 * @param code
+	 *            codice del valore dell'item
+	 */
+	DiscreteItem(DiscreteAttribute attribute, int code) {
+		super(attribute, attribute.getValue(code));
+		this.code = code;
+	}
+
+	/**
+	 * Restituisce il codice del valore dell'item.
+	 * 
+	 * @return codice del valore nel dizionario dell'attributo
+	 */
+	int getCode() {
+		return code;
+	}
+
+	/**
+	 * Restituisce il contributo alla distanza tra i codici dei valori dell'item e
+	 * di item, {@link DistanceMetric#distance(DiscreteAttribute, int, int)}.
+	 */
+	@Override
+	double distance(DistanceMetric metric, Item item) {
+		return metric.distance((DiscreteAttribute) getAttribute(), code, ((DiscreteItem) item).code);
+	}
+
+	/**
+	 * Restituisce il contributo alla distanza tra il codice del valore dell'item e
+	 * quello memorizzato nella riga row di data.
+	 */
+	@Override
+	double distance(DistanceMetric metric, Data data, int row) {
+		return metric.distance((DiscreteAttribute) getAttribute(), code,
+				data.getDiscreteValue(row, getAttribute().getId()));
+	}
+
+	/**
+	 * Assegna all'item il valore più frequente nel cluster con indice cluster,
+	 * {@link CentroidAccumulator#computeMode(int, int)}. Se il cluster è vuoto il
+	 * valore resta invariato.
+	 */
+	@Override
+	public void update(CentroidAccumulator accumulator, int cluster) {
+		int mode = accumulator.computeMode(cluster, getAttribute().getId());
+		if (mode >= 0) {
+			code = mode;
+			value = ((DiscreteAttribute) getAttribute()).getValue(mode);
+		}
+	}
+
+	/**
+	 * Scrive su out il codice del valore dell'item nel dizionario del suo
+	 * attributo, {@link DiscreteAttribute#write(DataOutput)}.
+	 */
+	@Override
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(code);
+	}
+
+}
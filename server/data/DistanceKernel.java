@@ -0,0 +1,227 @@
+package data;
+
+/**
+ * Questa classe calcola le distanze, misurate con un {@link DistanceMetric},
+ * tra le righe di un insieme di dati e un insieme di centroidi leggendo
+ * direttamente le colonne di {@link Data}. I valori dei centroidi vengono
+ * copiati, alla costruzione, in array primitivi organizzati per colonna: le
+ * distanze di un blocco di righe da tutti i centroidi sono accumulate una
+ * colonna alla volta con i cicli specializzati della distanza, che leggono gli
+ * array in sequenza e che il compilatore JIT può vettorizzare.
+ *
+ * Le colonne sono accumulate nello stesso ordine di
+ * {@link Tuple#getDistance(Data, int, DistanceMetric)}, quindi le distanze
+ * calcolate coincidono esattamente con quelle del calcolo di riferimento. Se la
+ * proprietà di sistema kmeans.kernel.verify vale true ogni distanza viene
+ * confrontata con quella di riferimento.
+ *
+ * Le distanze possono essere calcolate da più thread. Se i valori dei centroidi
+ * cambiano, {@link DistanceKernel#updateCenters()} li copia di nuovo negli
+ * array esistenti, senza allocarne altri; l'aggiornamento non deve essere
+ * concorrente al calcolo delle distanze.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class DistanceKernel {
+
+	/**
+	 * Numero di righe di un blocco, tale che le distanze del blocco da qualche
+	 * decina di centroidi restino nella cache del processore.
+	 */
+	public static final int BLOCK_SIZE = 256;
+
+	// true se ogni distanza va confrontata con quella di riferimento
+	private static final boolean VERIFY = Boolean.getBoolean("kmeans.kernel.verify");
+
+	private Data data;
+	private Tuple[] centers;
+	private DistanceMetric metric;
+	// attributo di ciascuna colonna
+	private Attribute[] attributes;
+	// true se la colonna è continua
+	private boolean[] continuous;
+	// valori normalizzati dei centroidi, per colonna continua e per centroide (null
+	// in corrispondenza delle colonne discrete)
+	private double[][] centerValues;
+	// codici dei valori dei centroidi, per colonna discreta e per centroide (null
+	// in corrispondenza delle colonne continue)
+	private int[][] centerCodes;
+
+	/**
+	 * Istanzia l'oggetto per calcolare le distanze, misurate con metric, tra le
+	 * righe di data e i centroidi centers.
+	 *
+	 * @param data
+	 *            dati di cui calcolare le distanze
+	 * @param centers
+	 *            centroidi, con gli attributi di data
+	 * @param metric
+	 *            misura della distanza
+	 */
+	public DistanceKernel(Data data, Tuple[] centers, DistanceMetric metric) {
+		this.data = data;
+		this.centers = centers;
+		this.metric = metric;
+		int numberOfAttributes = data.getNumberOfAttributes();
+		attributes = data.getAttributeSchema().toArray(new Attribute[numberOfAttributes]);
+		continuous = new boolean[numberOfAttributes];
+		centerValues = new double[numberOfAttributes][];
+		centerCodes = new int[numberOfAttributes][];
+		for (int column = 0; column < numberOfAttributes; column++) {
+			continuous[column] = attributes[column] instanceof ContinuousAttribute;
+			if (continuous[column])
+				centerValues[column] = new double[centers.length];
+			else
+				centerCodes[column] = new int[centers.length];
+		}
+		updateCenters();
+	}
+
+	/**
+	 * Copia i valori attuali dei centroidi, che possono essere stati modificati
+	 * dopo la costruzione, negli array per colonna.
+	 */
+	public void updateCenters() {
+		for (int column = 0; column < continuous.length; column++) {
+			for (int c = 0; c < centers.length; c++) {
+				Item item = centers[c].get(column);
+				if (continuous[column])
+					centerValues[column][c] = ((ContinuousItem) item).getScaledValue();
+				else
+					centerCodes[column][c] = ((DiscreteItem) item).getCode();
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di centroidi.
+	 *
+	 * @return numero di centroidi
+	 */
+	public int getNumberOfCenters() {
+		return centers.length;
+	}
+
+	/**
+	 * Calcola le distanze della riga row da tutti i centroidi e le memorizza in
+	 * distances, nell'ordine dei centroidi.
+	 *
+	 * @param row
+	 *            riga di cui calcolare le distanze
+	 * @param distances
+	 *            array, di lunghezza almeno pari al numero di centroidi, in cui
+	 *            memorizzare le distanze
+	 */
+	public void distances(int row, double[] distances) {
+		int numberOfCenters = centers.length;
+		for (int c = 0; c < numberOfCenters; c++)
+			distances[c] = 0;
+		for (int column = 0; column < continuous.length; column++) {
+			if (continuous[column]) {
+				ContinuousAttribute attribute = (ContinuousAttribute) attributes[column];
+				double value = data.getContinuousColumn(column)[row];
+				double[] values = centerValues[column];
+				for (int c = 0; c < numberOfCenters; c++)
+					distances[c] += metric.distance(attribute, values[c], value);
+			} else {
+				DiscreteAttribute attribute = (DiscreteAttribute) attributes[column];
+				int code = data.getDiscreteColumn(column)[row];
+				int[] codes = centerCodes[column];
+				for (int c = 0; c < numberOfCenters; c++)
+					distances[c] += metric.distance(attribute, codes[c], code);
+			}
+		}
+		for (int c = 0; c < numberOfCenters; c++)
+			distances[c] = metric.normalize(distances[c], continuous.length);
+		if (VERIFY)
+			verify(row, row + 1, distances);
+	}
+
+	/**
+	 * Restituisce la distanza della riga row dal centroide con indice center.
+	 *
+	 * @param row
+	 *            riga di cui calcolare la distanza
+	 * @param center
+	 *            indice del centroide
+	 * @return distanza della riga dal centroide
+	 */
+	public double distance(int row, int center) {
+		double distance = 0;
+		for (int column = 0; column < continuous.length; column++) {
+			if (continuous[column])
+				distance += metric.distance((ContinuousAttribute) attributes[column], centerValues[column][center],
+						data.getContinuousColumn(column)[row]);
+			else
+				distance += metric.distance((DiscreteAttribute) attributes[column], centerCodes[column][center],
+						data.getDiscreteColumn(column)[row]);
+		}
+		distance = metric.normalize(distance, continuous.length);
+		if (VERIFY && Double.doubleToLongBits(distance) != Double
+				.doubleToLongBits(centers[center].getDistance(data, row, metric)))
+			throw new IllegalStateException("Distance of row " + row + " from center " + center + " is " + distance
+					+ ", expected " + centers[center].getDistance(data, row, metric));
+		return distance;
+	}
+
+	/**
+	 * Calcola le distanze delle righe con indice compreso tra from (incluso) e to
+	 * (escluso) da tutti i centroidi. La distanza della riga row dal centroide c
+	 * viene memorizzata in distances alla posizione c * (to - from) + (row - from),
+	 * così che le distanze da uno stesso centroide siano contigue.
+	 *
+	 * @param from
+	 *            prima riga di cui calcolare le distanze
+	 * @param to
+	 *            riga successiva all'ultima di cui calcolare le distanze
+	 * @param distances
+	 *            array, di lunghezza almeno pari al numero di centroidi per il
+	 *            numero di righe, in cui memorizzare le distanze
+	 */
+	public void distances(int from, int to, double[] distances) {
+		int numberOfRows = to - from;
+		int numberOfCenters = centers.length;
+		for (int i = 0; i < numberOfRows * numberOfCenters; i++)
+			distances[i] = 0;
+		for (int column = 0; column < continuous.length; column++) {
+			if (continuous[column]) {
+				ContinuousAttribute attribute = (ContinuousAttribute) attributes[column];
+				double[] values = data.getContinuousColumn(column);
+				for (int c = 0; c < numberOfCenters; c++)
+					metric.accumulate(attribute, centerValues[column][c], values, from, to, distances,
+							c * numberOfRows - from);
+			} else {
+				DiscreteAttribute attribute = (DiscreteAttribute) attributes[column];
+				int[] codes = data.getDiscreteColumn(column);
+				for (int c = 0; c < numberOfCenters; c++)
+					metric.accumulate(attribute, centerCodes[column][c], codes, from, to, distances,
+							c * numberOfRows - from);
+			}
+		}
+		for (int i = 0; i < numberOfRows * numberOfCenters; i++)
+			distances[i] = metric.normalize(distances[i], continuous.length);
+		if (VERIFY)
+			verify(from, to, distances);
+	}
+
+	/**
+	 * Confronta le distanze calcolate per le righe da from a to con quelle di
+	 * {@link Tuple#getDistance(Data, int, DistanceMetric)}.
+	 *
+	 * @throws IllegalStateException
+	 *             se una distanza non coincide con quella di riferimento
+	 */
+	private void verify(int from, int to, double[] distances) {
+		int numberOfRows = to - from;
+		for (int c = 0; c < centers.length; c++) {
+			for (int row = from; row < to; row++) {
+				double expected = centers[c].getDistance(data, row, metric);
+				double actual = distances[c * numberOfRows + row - from];
+				if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual))
+					throw new IllegalStateException("Distance of row " + row + " from center " + c + " is " + actual
+							+ ", expected " + expected);
+			}
+		}
+	}
+}
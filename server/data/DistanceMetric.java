@@ -0,0 +1,133 @@
+package data;
+
+import java.io.Serializable;
+
+/**
+ * Misura della distanza tra tuple con attributi continui e discreti. La
+ * distanza è ottenuta combinando, nell'ordine degli attributi, i contributi di
+ * ciascun attributo: per gli attributi continui il contributo dipende dai
+ * valori normalizzati, per gli attributi discreti dai codici dei valori.
+ *
+ * I metodi accumulate calcolano i contributi di un attributo per un intervallo
+ * di righe memorizzate in {@link Data} e sono usati da {@link DistanceKernel};
+ * le implementazioni li ridefiniscono con cicli specializzati, che devono
+ * produrre esattamente gli stessi valori dei metodi distance.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public interface DistanceMetric extends Serializable {
+
+	/**
+	 * Restituisce il contributo alla distanza dell'attributo continuo attribute.
+	 *
+	 * @param attribute
+	 *            attributo continuo
+	 * @param a
+	 *            primo valore normalizzato
+	 * @param b
+	 *            secondo valore normalizzato
+	 * @return contributo alla distanza
+	 */
+	double distance(ContinuousAttribute attribute, double a, double b);
+
+	/**
+	 * Restituisce il contributo alla distanza dell'attributo discreto attribute.
+	 *
+	 * @param attribute
+	 *            attributo discreto
+	 * @param a
+	 *            codice del primo valore
+	 * @param b
+	 *            codice del secondo valore
+	 * @return contributo alla distanza
+	 */
+	double distance(DiscreteAttribute attribute, int a, int b);
+
+	/**
+	 * Prepara la misura per le distanze tra le tuple di data, ad esempio
+	 * risolvendo una volta sola i parametri che dipendono dallo schema. Viene
+	 * invocato prima del clustering, non in concorrenza con il calcolo delle
+	 * distanze.
+	 *
+	 * @param data
+	 *            dati su cui misurare le distanze
+	 */
+	default void prepare(Data data) {
+	}
+
+	/**
+	 * Restituisce la distanza a partire dalla somma dei contributi degli
+	 * attributi.
+	 *
+	 * @param sum
+	 *            somma dei contributi
+	 * @param numberOfAttributes
+	 *            numero di attributi
+	 * @return distanza
+	 */
+	default double normalize(double sum, int numberOfAttributes) {
+		return sum;
+	}
+
+	/**
+	 * Verifica se la distanza soddisfa la disuguaglianza triangolare, condizione
+	 * necessaria per escludere distanze con limiti come quelli di
+	 * {@link mining.HamerlyAssignment}.
+	 *
+	 * @return true se la distanza soddisfa la disuguaglianza triangolare
+	 */
+	boolean satisfiesTriangleInequality();
+
+	/**
+	 * Aggiunge a distances[offset + row] il contributo dell'attributo continuo
+	 * attribute tra center e values[row], per ogni riga row compresa tra from
+	 * (incluso) e to (escluso).
+	 *
+	 * @param attribute
+	 *            attributo continuo
+	 * @param center
+	 *            valore normalizzato del centroide
+	 * @param values
+	 *            valori normalizzati della colonna
+	 * @param from
+	 *            prima riga
+	 * @param to
+	 *            riga successiva all'ultima
+	 * @param distances
+	 *            somme dei contributi da aggiornare
+	 * @param offset
+	 *            posizione in distances della riga 0
+	 */
+	default void accumulate(ContinuousAttribute attribute, double center, double[] values, int from, int to,
+			double[] distances, int offset) {
+		for (int row = from; row < to; row++)
+			distances[offset + row] += distance(attribute, center, values[row]);
+	}
+
+	/**
+	 * Aggiunge a distances[offset + row] il contributo dell'attributo discreto
+	 * attribute tra center e codes[row], per ogni riga row compresa tra from
+	 * (incluso) e to (escluso).
+	 *
+	 * @param attribute
+	 *            attributo discreto
+	 * @param center
+	 *            codice del valore del centroide
+	 * @param codes
+	 *            codici dei valori della colonna
+	 * @param from
+	 *            prima riga
+	 * @param to
+	 *            riga successiva all'ultima
+	 * @param distances
+	 *            somme dei contributi da aggiornare
+	 * @param offset
+	 *            posizione in distances della riga 0
+	 */
+	default void accumulate(DiscreteAttribute attribute, int center, int[] codes, int from, int to,
+			double[] distances, int offset) {
+		for (int row = from; row < to; row++)
+			distances[offset + row] += distance(attribute, center, codes[row]);
+	}
+}
@@ -0,0 +1,26 @@
+package data;
+
+/**
+ * Distanza di Gower: media, sugli attributi, delle differenze in valore
+ * assoluto dei valori normalizzati degli attributi continui e delle
+ * discordanze degli attributi discreti. La distanza è quella di Manhattan divisa
+ * per il numero di attributi ed è quindi compresa tra 0 e 1.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class GowerDistance extends ManhattanDistance {
+
+	@Override
+	public double normalize(double sum, int numberOfAttributes) {
+		return sum / numberOfAttributes;
+	}
+
+	/**
+	 * Restituisce il nome della distanza.
+	 */
+	@Override
+	public String toString() {
+		return "gower";
+	}
+}
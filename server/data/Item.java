@@ -1,78 +1,118 @@
-package data;
-
-import java.io.Serializable;
-import java.util.Set;
-
-/**
- * Questa classe rappresenta un generico item, ossia una coppia
- * attributo-valore.
- * 
- * @author Gianluca Pagliara
- *
- */
-public abstract class Item implements Serializable {
-	protected Attribute attribute; // attributo coinvolto nell'item
-	protected Object value; // valore assegnato all'attributo
-
-	/**
-	 * Istanzia l'oggetto e inizializza l'attributo e il valore.
-	 * 
-	 * @param attribute
-	 *            attributo dell'item
-	 * @param value
-	 *            valore dell'item
-	 */
-	public Item(Attribute attribute, Object value) {
-		this.attribute = attribute;
-		this.value = value;
-	}
-
-	/**
-	 * Restituisce l'attributo dell'item.
-	 * 
-	 * @return attributo dell'item
-	 */
-	Attribute getAttribute() {
-		return attribute;
-	}
-
-	/**
-	 * Restituisce il valore dell'item.
-	 * 
-	 * @return valore dell'item
-	 */
-	Object getValue() {
-		return value;
-	}
-
-	/**
-	 * Restituisce la stringa rappresentante lo stato dell'item.
-	 */
-	public String toString() {
-		return value.toString();
-	}
-
-	/**
-	 * Calcola la distanza dell'item da l'oggetto obj.
-	 * 
-	 * @param obj
-	 *            oggetto rispetto il quale calcolare la distanza
-	 * @return distanza
-	 */
-	abstract double distance(Object obj);
-
-	/**
-	 * Rispetto ad un oggetto di tipo {@link Data}, modifica il valore dell'item
-	 * assegnando il valore restituito da
-	 * {@link Data#computePrototype(Set, Attribute)}.
-	 * 
-	 * @param data
-	 *            dati rispetto ai quali aggiornare i valori dell'item
-	 * @param clusteredData
-	 *            insieme di indici delle righe della matrice in data che formano i
-	 *            cluster
-	 */
-	public void update(Data data, Set<Integer> clusteredData) {
-		value = data.computePrototype(clusteredData, attribute);
-	}
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Questa classe rappresenta un generico item, ossia una coppia
+ * attributo-valore.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public abstract class Item implements Serializable, Cloneable {
+	protected Attribute attribute; // attributo coinvolto nell'item
+	protected Object value; // valore assegnato all'attributo
+
+	/**
+	 * Istanzia l'oggetto e inizializza l'attributo e il valore.
+	 * 
+	 * @param attribute
+	 *            attributo dell'item
+	 * @param value
+	 *            valore dell'item
+	 */
+	public Item(Attribute attribute, Object value) {
+		this.attribute = attribute;
+		this.value = value;
+	}
+
+	/**
+	 * Restituisce l'attributo dell'item.
+	 * 
+	 * @return attributo dell'item
+	 */
+	Attribute getAttribute() {
+		return attribute;
+	}
+
+	/**
+	 * Restituisce il valore dell'item.
+	 * 
+	 * @return valore dell'item
+	 */
+	Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Restituisce una copia dell'item, riferita allo stesso attributo e allo
+	 * stesso valore.
+	 * 
+	 * @return copia dell'item
+	 */
+	Item copy() {
+		try {
+			return (Item) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Restituisce la stringa rappresentante lo stato dell'item.
+	 */
+	public String toString() {
+		return value.toString();
+	}
+
+	/**
+	 * Restituisce il contributo dell'item alla distanza, misurata con metric,
+	 * dall'item item dello stesso attributo.
+	 * 
+	 * @param metric
+	 *            misura della distanza
+	 * @param item
+	 *            item rispetto al quale calcolare la distanza
+	 * @return contributo alla distanza
+	 */
+	abstract double distance(DistanceMetric metric, Item item);
+
+	/**
+	 * Restituisce il contributo dell'item alla distanza, misurata con metric, dal
+	 * valore che il suo attributo assume nella riga row di data, senza costruire
+	 * l'item corrispondente.
+	 * 
+	 * @param metric
+	 *            misura della distanza
+	 * @param data
+	 *            dati in cui leggere il valore
+	 * @param row
+	 *            riga del valore
+	 * @return contributo alla distanza
+	 */
+	abstract double distance(DistanceMetric metric, Data data, int row);
+
+	/**
+	 * Rispetto ad un oggetto di tipo {@link CentroidAccumulator}, modifica il
+	 * valore dell'item assegnando il prototipo del suo attributo nel cluster con
+	 * indice cluster. Se il cluster è vuoto il valore resta invariato.
+	 * 
+	 * @param accumulator
+	 *            informazioni accumulate sui dati dei cluster
+	 * @param cluster
+	 *            indice del cluster di cui l'item fa parte del centroide
+	 */
+	public abstract void update(CentroidAccumulator accumulator, int cluster);
+
+	/**
+	 * Scrive su out il valore dell'item nel formato binario del server.
+	 * 
+	 * @param out
+	 *            destinazione del valore
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	public abstract void write(DataOutput out) throws IOException;
+}
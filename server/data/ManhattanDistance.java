@@ -0,0 +1,49 @@
+package data;
+
+/**
+ * Distanza di Manhattan: somma delle differenze in valore assoluto dei valori
+ * normalizzati degli attributi continui e del numero di attributi discreti con
+ * valori diversi.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class ManhattanDistance implements DistanceMetric {
+
+	@Override
+	public double distance(ContinuousAttribute attribute, double a, double b) {
+		return Math.abs(a - b);
+	}
+
+	@Override
+	public double distance(DiscreteAttribute attribute, int a, int b) {
+		return a == b ? 0 : 1;
+	}
+
+	@Override
+	public boolean satisfiesTriangleInequality() {
+		return true;
+	}
+
+	@Override
+	public void accumulate(ContinuousAttribute attribute, double center, double[] values, int from, int to,
+			double[] distances, int offset) {
+		for (int row = from; row < to; row++)
+			distances[offset + row] += Math.abs(center - values[row]);
+	}
+
+	@Override
+	public void accumulate(DiscreteAttribute attribute, int center, int[] codes, int from, int to,
+			double[] distances, int offset) {
+		for (int row = from; row < to; row++)
+			distances[offset + row] += codes[row] == center ? 0 : 1;
+	}
+
+	/**
+	 * Restituisce il nome della distanza.
+	 */
+	@Override
+	public String toString() {
+		return "manhattan";
+	}
+}
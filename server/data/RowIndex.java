@@ -0,0 +1,121 @@
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Questa classe individua le righe duplicate di un insieme di dati mentre viene
+ * caricato. Le righe già caricate sono indicizzate in una tabella hash ad
+ * indirizzamento aperto sui valori delle loro colonne: l'hash di una riga è
+ * calcolato sui valori primitivi (valori continui e codici dei valori discreti),
+ * senza creare oggetti, e ogni inserimento costa un tempo costante atteso.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class RowIndex {
+	private Data data;
+	private int numberOfAttributes;
+	// indice della riga contenuta in ciascuna posizione della tabella, -1 se
+	// libera
+	private int[] slots;
+	// hash delle righe indicizzate, per riga
+	private int[] hashes;
+	private int size = 0;
+
+	/**
+	 * Istanzia l'indice vuoto per le righe di data.
+	 *
+	 * @param data
+	 *            dati in caricamento
+	 * @param numberOfAttributes
+	 *            numero di colonne dei dati
+	 */
+	RowIndex(Data data, int numberOfAttributes) {
+		this.data = data;
+		this.numberOfAttributes = numberOfAttributes;
+		slots = new int[1024];
+		Arrays.fill(slots, -1);
+		hashes = new int[512];
+	}
+
+	/**
+	 * Cerca tra le righe indicizzate una riga con gli stessi valori della riga row;
+	 * se non la trova, indicizza row.
+	 *
+	 * @param row
+	 *            riga appena caricata
+	 * @return indice della riga uguale a row già caricata, -1 se row è nuova
+	 */
+	int add(int row) {
+		int hash = hash(row);
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] >= 0) {
+			int other = slots[slot];
+			if (hashes[other] == hash && equal(row, other))
+				return other;
+			slot = (slot + 1) & mask;
+		}
+
+		if (row >= hashes.length)
+			hashes = Arrays.copyOf(hashes, Math.max(row + 1, hashes.length * 2));
+		hashes[row] = hash;
+		slots[slot] = row;
+		// Mantiene la tabella piena al più per metà
+		if (++size * 2 > slots.length)
+			rehash();
+		return -1;
+	}
+
+	private void rehash() {
+		int[] newSlots = new int[slots.length * 2];
+		Arrays.fill(newSlots, -1);
+		int mask = newSlots.length - 1;
+		for (int row : slots) {
+			if (row < 0)
+				continue;
+			int slot = hashes[row] & mask;
+			while (newSlots[slot] >= 0)
+				slot = (slot + 1) & mask;
+			newSlots[slot] = row;
+		}
+		slots = newSlots;
+	}
+
+	private int hash(int row) {
+		long hash = 1;
+		for (int column = 0; column < numberOfAttributes; column++) {
+			double[] values = data.getContinuousColumn(column);
+			long value;
+			if (values != null) {
+				// 0.0 e -0.0 sono lo stesso valore
+				double v = values[row];
+				value = Double.doubleToLongBits(v == 0 ? 0.0 : v);
+			} else {
+				value = data.getDiscreteColumn(column)[row];
+			}
+			hash = hash * 31 + value;
+		}
+		// Rimescola i bit, così da sfruttare anche quelli alti nella scelta della
+		// posizione
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		return (int) hash;
+	}
+
+	private boolean equal(int row, int other) {
+		for (int column = 0; column < numberOfAttributes; column++) {
+			double[] values = data.getContinuousColumn(column);
+			if (values != null) {
+				if (values[row] != values[other])
+					return false;
+			} else {
+				int[] codes = data.getDiscreteColumn(column);
+				if (codes[row] != codes[other])
+					return false;
+			}
+		}
+		return true;
+	}
+}
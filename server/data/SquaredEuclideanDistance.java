@@ -0,0 +1,53 @@
+package data;
+
+/**
+ * Quadrato della distanza euclidea: somma dei quadrati delle differenze dei
+ * valori normalizzati degli attributi continui e del numero di attributi
+ * discreti con valori diversi. È la distanza minimizzata dalla media dei valori,
+ * ma non soddisfa la disuguaglianza triangolare.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class SquaredEuclideanDistance implements DistanceMetric {
+
+	@Override
+	public double distance(ContinuousAttribute attribute, double a, double b) {
+		double difference = a - b;
+		return difference * difference;
+	}
+
+	@Override
+	public double distance(DiscreteAttribute attribute, int a, int b) {
+		return a == b ? 0 : 1;
+	}
+
+	@Override
+	public boolean satisfiesTriangleInequality() {
+		return false;
+	}
+
+	@Override
+	public void accumulate(ContinuousAttribute attribute, double center, double[] values, int from, int to,
+			double[] distances, int offset) {
+		for (int row = from; row < to; row++) {
+			double difference = center - values[row];
+			distances[offset + row] += difference * difference;
+		}
+	}
+
+	@Override
+	public void accumulate(DiscreteAttribute attribute, int center, int[] codes, int from, int to,
+			double[] distances, int offset) {
+		for (int row = from; row < to; row++)
+			distances[offset + row] += codes[row] == center ? 0 : 1;
+	}
+
+	/**
+	 * Restituisce il nome della distanza.
+	 */
+	@Override
+	public String toString() {
+		return "euclidean";
+	}
+}
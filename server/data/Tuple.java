@@ -1,97 +1,173 @@
-package data;
-
-import java.io.Serializable;
-import java.util.Iterator;
-import java.util.Set;
-
-/**
- * Questa classe rappresenta una tupla come sequenza di coppie attributo-valore.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class Tuple implements Serializable {
-	Item[] tuple;
-
-	/**
-	 * Istanzia l'oggetto inzializzando l'array con il numero di item che costituir
-	 * la tupla.
-	 * 
-	 * @param size
-	 *            numero di item della tupla
-	 */
-	Tuple(int size) {
-		tuple = new Item[size];
-	}
-
-	/**
-	 * Restituisce la lunghezza della tupla.
-	 * 
-	 * @return lunghezza della tupla
-	 */
-	public int getLength() {
-		return tuple.length;
-	}
-
-	/**
-	 * Restituisce l'item in una posizione specifica.
-	 *
-	 * @param i
-	 *            posizione dell'item nella tupla
-	 * @return item nella i-esima posizione
-	 */
-	public Item get(int i) {
-		return tuple[i];
-	}
-
-	/**
-	 * Aggiunge un item in una posizione specifica.
-	 * 
-	 * @param item
-	 *            item da inserire
-	 * @param i
-	 *            posizione in cui inserire l'item
-	 */
-	void add(Item item, int i) {
-		tuple[i] = item;
-	}
-
-	/**
-	 * Restituisce la distanza tra la tupla riferita da obj e la tupla corrente. La
-	 * distanza  ottenuta come somma delle distanze tra gli item in posizioni
-	 * uguali nelle due tuple.
-	 * 
-	 * @param tuple
-	 *            tupla con cui confrontare la tupla corrente
-	 * @return distanza tra le due tuple
-	 */
-	public double getDistance(Tuple tuple) {
-		int distance = 0;
-		for (int i = 0; i < getLength(); i++) {
-			distance += get(i).distance(tuple.get(i));
-		}
-		return distance;
-	}
-
-	/**
-	 * Restituisce la media delle distanze tra la tupla corrente e quelle ottenibili
-	 * dalle righe della matrice in data aventi indice contenuto in clusteredData.
-	 * 
-	 * @param data
-	 *            dati da cui prendere le tuple
-	 * @param clusteredData
-	 *            indici delle tuple da considerare
-	 * @return distanza media
-	 */
-	public double avgDistance(Data data, Set<Integer> clusteredData) {
-		double p = 0.0, sumD = 0.0;
-		Iterator<Integer> e = clusteredData.iterator();
-		while (e.hasNext()) {
-			double d = getDistance(data.getItemSet(e.next()));
-			sumD += d;
-		}
-		p = sumD / clusteredData.size();
-		return p;
-
-	}
-}
+package data;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Questa classe rappresenta una tupla come sequenza di coppie attributo-valore.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class Tuple implements Serializable {
+	Item[] tuple;
+
+	/**
+	 * Istanzia l'oggetto inzializzando l'array con il numero di item che costituirà
+	 * la tupla.
+	 * 
+	 * @param size
+	 *            numero di item della tupla
+	 */
+	Tuple(int size) {
+		tuple = new Item[size];
+	}
+
+	/**
+	 * Restituisce la lunghezza della tupla.
+	 * 
+	 * @return lunghezza della tupla
+	 */
+	public int getLength() {
+		return tuple.length;
+	}
+
+	/**
+	 * Restituisce l'item in una posizione specifica.
+	 *
+	 * @param i
+	 *            posizione dell'item nella tupla
+	 * @return item nella i-esima posizione
+	 */
+	public Item get(int i) {
+		return tuple[i];
+	}
+
+	/**
+	 * Aggiunge un item in una posizione specifica.
+	 * 
+	 * @param item
+	 *            item da inserire
+	 * @param i
+	 *            posizione in cui inserire l'item
+	 */
+	void add(Item item, int i) {
+		tuple[i] = item;
+	}
+
+	/**
+	 * Restituisce una copia della tupla, i cui item non risentono degli
+	 * aggiornamenti successivi degli item della tupla corrente.
+	 * 
+	 * @return copia della tupla
+	 */
+	public Tuple copy() {
+		Tuple copy = new Tuple(getLength());
+		for (int i = 0; i < getLength(); i++) {
+			copy.add(get(i).copy(), i);
+		}
+		return copy;
+	}
+
+	/**
+	 * Scrive su out il numero di attributi della tupla seguito dalla descrizione di
+	 * ciascuno, {@link Attribute#write(DataOutput)}.
+	 * 
+	 * @param out
+	 *            destinazione dello schema
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	public void writeSchema(DataOutput out) throws IOException {
+		out.writeInt(getLength());
+		for (Item item : tuple)
+			item.getAttribute().write(out);
+	}
+
+	/**
+	 * Scrive su out i valori della tupla nell'ordine degli attributi,
+	 * {@link Item#write(DataOutput)}.
+	 * 
+	 * @param out
+	 *            destinazione dei valori
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	public void write(DataOutput out) throws IOException {
+		for (Item item : tuple)
+			item.write(out);
+	}
+
+	/**
+	 * Restituisce la distanza, misurata con metric, tra la tupla riferita da obj e
+	 * la tupla corrente. I contributi degli item in posizioni uguali nelle due
+	 * tuple sono sommati nell'ordine degli attributi.
+	 * 
+	 * @param tuple
+	 *            tupla con cui confrontare la tupla corrente
+	 * @param metric
+	 *            misura della distanza
+	 * @return distanza tra le due tuple
+	 */
+	public double getDistance(Tuple tuple, DistanceMetric metric) {
+		double distance = 0;
+		for (int i = 0; i < getLength(); i++) {
+			distance += get(i).distance(metric, tuple.get(i));
+		}
+		return metric.normalize(distance, getLength());
+	}
+
+	/**
+	 * Restituisce la distanza, misurata con metric, tra la tupla corrente e la
+	 * riga row di data, calcolata direttamente sui valori memorizzati in data
+	 * senza costruire la tupla corrispondente.
+	 * 
+	 * @param data
+	 *            dati in cui si trova la riga
+	 * @param row
+	 *            riga con cui confrontare la tupla corrente
+	 * @param metric
+	 *            misura della distanza
+	 * @return distanza tra la tupla e la riga
+	 */
+	public double getDistance(Data data, int row, DistanceMetric metric) {
+		double distance = 0;
+		for (int i = 0; i < getLength(); i++) {
+			distance += get(i).distance(metric, data, row);
+		}
+		return metric.normalize(distance, getLength());
+	}
+
+	/**
+	 * Restituisce la media delle distanze, misurate con metric, tra la tupla
+	 * corrente e quelle ottenibili dalle righe della matrice in data che
+	 * appartengono al cluster con indice cluster, pesando ciascuna distanza con il
+	 * peso della riga.
+	 * 
+	 * @param data
+	 *            dati da cui prendere le tuple
+	 * @param membership
+	 *            indice del cluster a cui appartiene ciascuna riga di data
+	 * @param cluster
+	 *            indice del cluster di cui considerare le righe
+	 * @param metric
+	 *            misura della distanza
+	 * @return distanza media
+	 */
+	public double avgDistance(Data data, int[] membership, int cluster, DistanceMetric metric) {
+		double p = 0.0, sumD = 0.0;
+		double totalWeight = 0;
+		for (int i = 0; i < data.getNumberOfTuples(); i++) {
+			if (membership[i] == cluster) {
+				double weight = data.getWeight(i);
+				double d = getDistance(data, i, metric);
+				sumD += weight * d;
+				totalWeight += weight;
+			}
+		}
+		p = sumD / totalWeight;
+		return p;
+
+	}
+}
@@ -0,0 +1,135 @@
+package data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distanza di Manhattan pesata: ciascun contributo della
+ * {@link ManhattanDistance} è moltiplicato per il peso del suo attributo. Gli
+ * attributi senza un peso assegnato hanno peso 1; un peso nullo esclude
+ * l'attributo dalla distanza.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class WeightedDistance implements DistanceMetric {
+	// peso di ciascun attributo, per nome dell'attributo in minuscolo
+	private HashMap<String, Double> attributeWeights = new HashMap<String, Double>();
+	// peso di ciascun attributo, per id dell'attributo, risolto da prepare
+	private double[] weights = new double[0];
+
+	/**
+	 * Istanzia l'oggetto con i pesi degli attributi attributeWeights.
+	 *
+	 * @param attributeWeights
+	 *            peso di ciascun attributo, per nome dell'attributo
+	 * @throws IllegalArgumentException
+	 *             se un peso è negativo o non è un numero
+	 */
+	public WeightedDistance(Map<String, Double> attributeWeights) {
+		for (Map.Entry<String, Double> entry : attributeWeights.entrySet()) {
+			double weight = entry.getValue();
+			if (!(weight >= 0) || Double.isInfinite(weight))
+				throw new IllegalArgumentException("Invalid weight of attribute " + entry.getKey() + ": " + weight);
+			this.attributeWeights.put(entry.getKey().toLowerCase(), weight);
+		}
+	}
+
+	/**
+	 * Verifica che ogni attributo a cui è assegnato un peso sia presente in data.
+	 *
+	 * @param data
+	 *            dati su cui misurare le distanze
+	 * @return nome di un attributo con peso assegnato non presente in data, null
+	 *         se sono tutti presenti
+	 */
+	public String findUnknownAttribute(Data data) {
+		for (String name : attributeWeights.keySet()) {
+			boolean found = false;
+			for (Attribute attribute : data.getAttributeSchema())
+				found |= attribute.getName().equalsIgnoreCase(name);
+			if (!found)
+				return name;
+		}
+		return null;
+	}
+
+	/**
+	 * Risolve i pesi degli attributi di data, per id dell'attributo, in modo che
+	 * il calcolo delle distanze non debba cercarli per nome.
+	 */
+	@Override
+	public void prepare(Data data) {
+		List<Attribute> schema = data.getAttributeSchema();
+		double[] weights = new double[schema.size()];
+		for (Attribute attribute : schema)
+			weights[attribute.getId()] = findWeight(attribute);
+		this.weights = weights;
+	}
+
+	/**
+	 * Cerca per nome il peso dell'attributo attribute.
+	 *
+	 * @param attribute
+	 *            attributo
+	 * @return peso dell'attributo, 1 se non assegnato
+	 */
+	private double findWeight(Attribute attribute) {
+		Double weight = attributeWeights.get(attribute.getName().toLowerCase());
+		return weight == null ? 1 : weight;
+	}
+
+	/**
+	 * Restituisce il peso dell'attributo attribute, risolto da
+	 * {@link WeightedDistance#prepare(Data)} oppure, se la misura non è stata
+	 * preparata per i dati dell'attributo, cercato per nome.
+	 *
+	 * @param attribute
+	 *            attributo
+	 * @return peso dell'attributo
+	 */
+	double getWeight(Attribute attribute) {
+		int id = attribute.getId();
+		return id < weights.length ? weights[id] : findWeight(attribute);
+	}
+
+	@Override
+	public double distance(ContinuousAttribute attribute, double a, double b) {
+		return getWeight(attribute) * Math.abs(a - b);
+	}
+
+	@Override
+	public double distance(DiscreteAttribute attribute, int a, int b) {
+		return a == b ? 0 : getWeight(attribute);
+	}
+
+	@Override
+	public boolean satisfiesTriangleInequality() {
+		return true;
+	}
+
+	@Override
+	public void accumulate(ContinuousAttribute attribute, double center, double[] values, int from, int to,
+			double[] distances, int offset) {
+		double weight = getWeight(attribute);
+		for (int row = from; row < to; row++)
+			distances[offset + row] += weight * Math.abs(center - values[row]);
+	}
+
+	@Override
+	public void accumulate(DiscreteAttribute attribute, int center, int[] codes, int from, int to,
+			double[] distances, int offset) {
+		double weight = getWeight(attribute);
+		for (int row = from; row < to; row++)
+			distances[offset + row] += codes[row] == center ? 0 : weight;
+	}
+
+	/**
+	 * Restituisce il nome della distanza e i pesi assegnati agli attributi.
+	 */
+	@Override
+	public String toString() {
+		return "weighted" + attributeWeights;
+	}
+}
@@ -0,0 +1,400 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Questa classe gestisce un insieme limitato di connessioni al database,
+ * condivise dai thread del server. Ogni connessione viene prestata a un solo
+ * thread alla volta; la connessione restituita da
+ * {@link ConnectionPool#borrow()} torna al pool quando viene chiusa, invece di
+ * essere chiusa fisicamente.
+ *
+ * Una connessione rimasta inattiva più a lungo dell'intervallo di validazione
+ * viene verificata prima di essere prestata; le connessioni inattive da più
+ * del tempo massimo di inattività vengono chiuse periodicamente.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class ConnectionPool {
+
+	/**
+	 * Connessione fisica al database, insieme agli statement preparati su di essa
+	 * e all'istante in cui è tornata nel pool.
+	 */
+	private static class PooledConnection {
+		private Connection connection;
+		private StatementCache statements;
+		private long lastUsed;
+
+		PooledConnection(Connection connection, StatementCache statements) {
+			this.connection = connection;
+			this.statements = statements;
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Gestisce le chiamate alla connessione prestata: la chiusura restituisce la
+	 * connessione al pool, la preparazione degli statement passa dalla cache della
+	 * connessione, le altre chiamate sono inoltrate alla connessione fisica finché
+	 * la connessione prestata non viene chiusa.
+	 */
+	private class BorrowedConnection implements InvocationHandler {
+		private PooledConnection pooled;
+		private boolean closed = false;
+
+		BorrowedConnection(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					release(pooled);
+				}
+				return null;
+			case "isClosed":
+				return closed || pooled.connection.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "Pooled " + pooled.connection;
+			default:
+				if (closed)
+					throw new SQLException("Connection already returned to the pool.");
+				if (method.getName().equals("prepareStatement")) {
+					Class<?>[] types = method.getParameterTypes();
+					if (types.length == 1)
+						return pooled.statements.prepare((Connection) proxy, (String) args[0],
+								ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+					if (types.length == 3 && types[1] == int.class && types[2] == int.class)
+						return pooled.statements.prepare((Connection) proxy, (String) args[0], (Integer) args[1],
+								(Integer) args[2]);
+				}
+				try {
+					return method.invoke(pooled.connection, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+
+	// Secondi concessi a Connection.isValid(int) per validare una connessione
+	private static final int VALIDATION_TIMEOUT = 2;
+
+	private String url;
+	private String user;
+	private String password;
+	private int maxConnections;
+	private int statementCacheSize;
+	private long borrowTimeout;
+	private long validationInterval;
+	private long idleTimeout;
+
+	// connessioni inattive, la più recente in testa
+	private Deque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+	// connessioni fisiche aperte o in apertura, prestate o inattive
+	private int openConnections = 0;
+	private boolean shutdown = false;
+	private ScheduledExecutorService evictor;
+
+	// statistiche di utilizzo
+	private long numberOfBorrows = 0;
+	private long numberOfWaits = 0;
+	private long totalWaitTime = 0;
+	private long maxWaitTime = 0;
+	private long numberOfCreated = 0;
+	private long numberOfEvicted = 0;
+	private AtomicLong statementHits = new AtomicLong();
+	private AtomicLong statementMisses = new AtomicLong();
+
+	/**
+	 * Istanzia il pool senza aprire alcuna connessione.
+	 *
+	 * @param url
+	 *            stringa di connessione al database
+	 * @param user
+	 *            utente del database
+	 * @param password
+	 *            password dell'utente
+	 * @param maxConnections
+	 *            numero massimo di connessioni aperte contemporaneamente
+	 * @param borrowTimeout
+	 *            millisecondi di attesa massima per ottenere una connessione
+	 * @param validationInterval
+	 *            millisecondi di inattività oltre i quali una connessione viene
+	 *            validata prima di essere prestata
+	 * @param idleTimeout
+	 *            millisecondi di inattività oltre i quali una connessione viene
+	 *            chiusa
+	 * @param statementCacheSize
+	 *            numero massimo di statement preparati conservati per ciascuna
+	 *            connessione
+	 */
+	ConnectionPool(String url, String user, String password, int maxConnections, long borrowTimeout,
+			long validationInterval, long idleTimeout, int statementCacheSize) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxConnections = Math.max(1, maxConnections);
+		this.borrowTimeout = borrowTimeout;
+		this.validationInterval = validationInterval;
+		this.idleTimeout = idleTimeout;
+		this.statementCacheSize = statementCacheSize;
+
+		evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(1000, idleTimeout / 2);
+		evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Presta una connessione del pool, aprendone una nuova se nessuna è inattiva e
+	 * il numero massimo non è stato raggiunto, altrimenti attende che una
+	 * connessione venga restituita.
+	 *
+	 * @return connessione da chiudere al termine dell'utilizzo
+	 * @throws SQLException
+	 *             se non è possibile aprire una connessione o se l'attesa supera
+	 *             il tempo massimo
+	 */
+	Connection borrow() throws SQLException {
+		long start = System.currentTimeMillis();
+		boolean waited = false;
+		while (true) {
+			PooledConnection candidate = null;
+			boolean create = false;
+			synchronized (this) {
+				while (idle.isEmpty() && openConnections >= maxConnections) {
+					if (shutdown)
+						throw new SQLException("Connection pool closed.");
+					long remaining = borrowTimeout - (System.currentTimeMillis() - start);
+					if (remaining <= 0)
+						throw new SQLException("Timeout waiting for a database connection.");
+					waited = true;
+					try {
+						wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a database connection.", e);
+					}
+				}
+				if (shutdown)
+					throw new SQLException("Connection pool closed.");
+				if (!idle.isEmpty()) {
+					candidate = idle.pollFirst();
+				} else {
+					// Riserva il posto per la nuova connessione, aperta fuori dal lock
+					openConnections++;
+					create = true;
+				}
+			}
+
+			if (create) {
+				try {
+					Connection connection = DriverManager.getConnection(url, user, password);
+					candidate = new PooledConnection(connection,
+							new StatementCache(connection, statementCacheSize, statementHits, statementMisses));
+				} catch (SQLException e) {
+					discard(null);
+					throw e;
+				}
+				synchronized (this) {
+					numberOfCreated++;
+				}
+			} else if (!isValid(candidate)) {
+				discard(candidate);
+				continue;
+			}
+
+			long waitTime = System.currentTimeMillis() - start;
+			synchronized (this) {
+				numberOfBorrows++;
+				if (waited)
+					numberOfWaits++;
+				totalWaitTime += waitTime;
+				maxWaitTime = Math.max(maxWaitTime, waitTime);
+			}
+			return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new BorrowedConnection(candidate));
+		}
+	}
+
+	/**
+	 * Verifica che la connessione sia ancora utilizzabile. La verifica viene
+	 * omessa se la connessione è tornata nel pool da meno dell'intervallo di
+	 * validazione.
+	 *
+	 * @param pooled
+	 *            connessione da verificare
+	 * @return true se la connessione è utilizzabile
+	 */
+	private boolean isValid(PooledConnection pooled) {
+		if (System.currentTimeMillis() - pooled.lastUsed < validationInterval)
+			return true;
+		try {
+			return pooled.connection.isValid(VALIDATION_TIMEOUT);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Restituisce al pool una connessione prestata. Se il pool è stato chiuso o
+	 * la connessione non è più aperta, la connessione viene scartata.
+	 *
+	 * @param pooled
+	 *            connessione restituita
+	 */
+	private void release(PooledConnection pooled) {
+		boolean open;
+		try {
+			open = !pooled.connection.isClosed();
+			if (open && !pooled.connection.getAutoCommit())
+				pooled.connection.rollback();
+		} catch (SQLException e) {
+			open = false;
+		}
+
+		synchronized (this) {
+			if (open && !shutdown) {
+				pooled.lastUsed = System.currentTimeMillis();
+				idle.addFirst(pooled);
+				notify();
+				return;
+			}
+		}
+		discard(pooled);
+	}
+
+	/**
+	 * Chiude una connessione fisica e libera il suo posto nel pool.
+	 *
+	 * @param pooled
+	 *            connessione da chiudere, null se l'apertura non è riuscita
+	 */
+	private void discard(PooledConnection pooled) {
+		synchronized (this) {
+			openConnections--;
+			notify();
+		}
+		if (pooled != null)
+			closeQuietly(pooled);
+	}
+
+	/**
+	 * Chiude le connessioni inattive da più del tempo massimo di inattività.
+	 */
+	void evictIdle() {
+		long now = System.currentTimeMillis();
+		Deque<PooledConnection> evicted = new ArrayDeque<PooledConnection>();
+		synchronized (this) {
+			// Le connessioni meno recenti sono in coda
+			Iterator<PooledConnection> it = idle.descendingIterator();
+			while (it.hasNext()) {
+				PooledConnection pooled = it.next();
+				if (now - pooled.lastUsed < idleTimeout)
+					break;
+				it.remove();
+				evicted.add(pooled);
+			}
+			openConnections -= evicted.size();
+			numberOfEvicted += evicted.size();
+			if (!evicted.isEmpty())
+				notifyAll();
+		}
+		for (PooledConnection pooled : evicted)
+			closeQuietly(pooled);
+	}
+
+	/**
+	 * Chiude il pool: le connessioni inattive vengono chiuse subito, quelle
+	 * prestate quando vengono restituite.
+	 */
+	void shutdown() {
+		Deque<PooledConnection> closing;
+		synchronized (this) {
+			shutdown = true;
+			closing = idle;
+			idle = new ArrayDeque<PooledConnection>();
+			openConnections -= closing.size();
+			notifyAll();
+		}
+		evictor.shutdownNow();
+		for (PooledConnection pooled : closing)
+			closeQuietly(pooled);
+	}
+
+	private static void closeQuietly(PooledConnection pooled) {
+		pooled.statements.close();
+		try {
+			pooled.connection.close();
+		} catch (SQLException e) {
+			System.out.println("Close connection error: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Restituisce il numero di connessioni attualmente prestate.
+	 *
+	 * @return numero di connessioni attive
+	 */
+	synchronized int getActiveConnections() {
+		return openConnections - idle.size();
+	}
+
+	/**
+	 * Restituisce il numero di connessioni aperte e inattive.
+	 *
+	 * @return numero di connessioni inattive
+	 */
+	synchronized int getIdleConnections() {
+		return idle.size();
+	}
+
+	/**
+	 * Restituisce il tempo medio, in millisecondi, impiegato per ottenere una
+	 * connessione.
+	 *
+	 * @return tempo medio di attesa
+	 */
+	synchronized double getAverageWaitTime() {
+		return numberOfBorrows == 0 ? 0 : (double) totalWaitTime / numberOfBorrows;
+	}
+
+	/**
+	 * Restituisce la stringa con le statistiche di utilizzo del pool.
+	 */
+	@Override
+	public synchronized String toString() {
+		return "active=" + getActiveConnections() + " idle=" + getIdleConnections() + " max=" + maxConnections
+				+ " borrows=" + numberOfBorrows + " waits=" + numberOfWaits + " avgWaitMs="
+				+ String.format("%.2f", getAverageWaitTime()) + " maxWaitMs=" + maxWaitTime + " created="
+				+ numberOfCreated + " evicted=" + numberOfEvicted + " statementHits=" + statementHits
+				+ " statementMisses=" + statementMisses;
+	}
+}
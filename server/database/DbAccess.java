@@ -1,95 +1,110 @@
-package database;
-
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-
-/**
- * Questa classe permette attraverso i suoi metodi di connettersi ad uno
- * specifico database (jdbc:mysql://localhost:3306/MapDB).
- * 
- * @author Gianluca Pagliara
- *
- */
-public class DbAccess {
-
-	private static final String DRIVER_CLASS_NAME = "org.gjt.mm.mysql.Driver";
-
-	private static final String DBMS = "jdbc:mysql";
-	private static final String SERVER_ID = "localhost";
-	private static final String DBMS_PORT = "3306"; // La porta su cui il DBMS MySQL accetta le connessioni
-	private static final String DATABASE_NAME = "MapDB";
-	private static final String USER_ID = "MapUser";
-	private static final String USER_PASSWORD = "map";
-
-	private static Connection connection; // gestisce una connessione
-
-	private DbAccess() {
-
-	}
-
-	/**
-	 * Impartisce al classloader lordine di caricare il driver mysql, inizializza
-	 * la connessione riferita da {@link DbAccess#connection}.
-	 * 
-	 * @throws DatabaseConnectionException
-	 *             se fallisce la connessione al database.
-	 */
-	public static void initConnection() throws DatabaseConnectionException {
-		// Chiude la connessione se gi presente
-		closeConnection();
-
-		String connectionString = DBMS + "://" + SERVER_ID + ":" + DBMS_PORT + "/" + DATABASE_NAME;
-
-		// Verifica la correttezza del driver
-		try {
-			Class.forName(DRIVER_CLASS_NAME).newInstance();
-		} catch (Exception e) {
-			System.out.println("MySQL Driver error: " + e.getMessage());
-		}
-
-		// Esegue la connessione
-		try {
-			connection = DriverManager.getConnection(connectionString, USER_ID, USER_PASSWORD);
-		} catch (SQLException e) {
-			throw new DatabaseConnectionException();
-		}
-	}
-
-	/**
-	 * Restituisce la connessione se gi creata e se essa  valida, altrimenti prima
-	 * la inizializza.
-	 * 
-	 * @return restituisce {@link DbAccess#connection}
-	 */
-	public static Connection getConnection() {
-		// Verifica che la connessione sia valida, altrimenti la inizializza
-		try {
-			boolean connectionIsValid = (connection != null) && connection.isValid(0) ? true : false;
-			if (!connectionIsValid)
-				try {
-					initConnection();
-				} catch (DatabaseConnectionException e) {
-					System.out.println("Connection initialization error: " + e.getMessage());
-				}
-		} catch (SQLException e) {
-			// Ignorata, viene lanciata da Connection.isValid(int) se timeout < 0
-		}
-
-		return connection;
-	}
-
-	/**
-	 * Chiude la connessione.
-	 */
-	public static void closeConnection() {
-		if (connection != null) {
-			try {
-				connection.close();
-			} catch (SQLException e) {
-				System.out.println("Close connection error: " + e.getMessage());
-			}
-		}
-	}
-
-}
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Questa classe permette attraverso i suoi metodi di connettersi ad uno
+ * specifico database (jdbc:mysql://localhost:3306/MapDB). Le connessioni sono
+ * gestite da un pool condiviso da tutti i thread del server.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class DbAccess {
+
+	private static final String DRIVER_CLASS_NAME = "org.gjt.mm.mysql.Driver";
+
+	private static final String DBMS = "jdbc:mysql";
+	private static final String SERVER_ID = "localhost";
+	private static final String DBMS_PORT = "3306"; // La porta su cui il DBMS MySQL accetta le connessioni
+	private static final String DATABASE_NAME = "MapDB";
+	private static final String USER_ID = "MapUser";
+	private static final String USER_PASSWORD = "map";
+	// Con useCursorFetch il driver prepara gli statement sul server e legge i
+	// resultset a blocchi della dimensione di fetch impostata sullo statement,
+	// invece di caricarli interamente in memoria
+	private static final String CONNECTION_PROPERTIES = "useCursorFetch=true";
+
+	// numero massimo di connessioni aperte contemporaneamente
+	private static final int MAX_CONNECTIONS = Integer.getInteger("kmeans.db.maxConnections", 8);
+	// millisecondi di attesa massima per ottenere una connessione
+	private static final long BORROW_TIMEOUT = Long.getLong("kmeans.db.borrowTimeout", 30000);
+	// millisecondi di inattivita' oltre i quali una connessione viene validata
+	// prima di essere prestata
+	private static final long VALIDATION_INTERVAL = Long.getLong("kmeans.db.validationInterval", 5000);
+	// millisecondi di inattivita' oltre i quali una connessione viene chiusa
+	private static final long IDLE_TIMEOUT = Long.getLong("kmeans.db.idleTimeout", 600000);
+	// numero massimo di statement preparati conservati per ciascuna connessione
+	private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("kmeans.db.statementCacheSize", 32);
+
+	private static ConnectionPool pool; // gestisce le connessioni
+
+	private DbAccess() {
+
+	}
+
+	/**
+	 * Impartisce al classloader l'ordine di caricare il driver mysql e inizializza
+	 * il pool di connessioni riferito da {@link DbAccess#pool}, se non è già stato
+	 * fatto. Le dimensioni e i tempi del pool sono configurabili tramite le
+	 * proprietà di sistema kmeans.db.maxConnections, kmeans.db.borrowTimeout,
+	 * kmeans.db.validationInterval, kmeans.db.idleTimeout e
+	 * kmeans.db.statementCacheSize.
+	 * 
+	 * @return pool di connessioni
+	 */
+	private static synchronized ConnectionPool getPool() {
+		if (pool == null) {
+			String connectionString = DBMS + "://" + SERVER_ID + ":" + DBMS_PORT + "/" + DATABASE_NAME + "?"
+					+ CONNECTION_PROPERTIES;
+
+			// Verifica la correttezza del driver
+			try {
+				Class.forName(DRIVER_CLASS_NAME).newInstance();
+			} catch (Exception e) {
+				System.out.println("MySQL Driver error: " + e.getMessage());
+			}
+
+			pool = new ConnectionPool(connectionString, USER_ID, USER_PASSWORD, MAX_CONNECTIONS, BORROW_TIMEOUT,
+					VALIDATION_INTERVAL, IDLE_TIMEOUT, STATEMENT_CACHE_SIZE);
+		}
+		return pool;
+	}
+
+	/**
+	 * Ottiene una connessione dal pool, attendendo se tutte le connessioni sono in
+	 * uso. La connessione va chiusa al termine dell'utilizzo, così da restituirla
+	 * al pool.
+	 * 
+	 * @return connessione al database
+	 * @throws SQLException
+	 *             se fallisce la connessione al database o se l'attesa di una
+	 *             connessione libera supera il tempo massimo
+	 */
+	public static Connection getConnection() throws SQLException {
+		return getPool().borrow();
+	}
+
+	/**
+	 * Restituisce la stringa con le statistiche di utilizzo del pool di
+	 * connessioni: connessioni attive e inattive e tempi di attesa.
+	 * 
+	 * @return statistiche del pool
+	 */
+	public static String getPoolStatistics() {
+		return getPool().toString();
+	}
+
+	/**
+	 * Chiude il pool e le sue connessioni. Le connessioni ancora in uso vengono
+	 * chiuse quando sono restituite.
+	 */
+	public static synchronized void closeConnection() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+}
@@ -1,17 +1,17 @@
-package database;
-
-import java.sql.ResultSet;
-
-/**
- * Segnala che il {@link ResultSet} di una query  vuoto.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class EmptySetException extends Exception {
-
-	@Override
-	public String getMessage() {
-		return "No result found for the query.";
-	}
-}
+package database;
+
+import java.sql.ResultSet;
+
+/**
+ * Segnala che il {@link ResultSet} di una query è vuoto.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class EmptySetException extends Exception {
+
+	@Override
+	public String getMessage() {
+		return "No result found for the query.";
+	}
+}
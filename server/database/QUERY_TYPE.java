@@ -1,11 +0,0 @@
-package database;
-
-/**
- * Tipi di query per la richiesta di valori aggregati.
- * 
- * @author Gianluca Pagliara
- *
- */
-public enum QUERY_TYPE {
-	MIN, MAX
-}
@@ -0,0 +1,25 @@
+package database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Elabora, una alla volta, le righe restituite da un'interrogazione mentre
+ * vengono lette dal database.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public interface RowHandler {
+
+	/**
+	 * Elabora la riga corrente di resultSet. L'implementazione deve limitarsi a
+	 * leggere i valori della riga, senza spostare il cursore.
+	 * 
+	 * @param resultSet
+	 *            resultset posizionato sulla riga da elaborare
+	 * @throws SQLException
+	 *             se ci sono errori nella lettura dei valori
+	 */
+	void handleRow(ResultSet resultSet) throws SQLException;
+}
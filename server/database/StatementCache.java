@@ -0,0 +1,198 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Questa classe conserva gli statement preparati su una connessione fisica del
+ * pool, così che la stessa interrogazione non venga preparata di nuovo a ogni
+ * utilizzo della connessione. Lo statement restituito da
+ * {@link StatementCache#prepare(Connection, String, int, int)} torna nella
+ * cache quando viene chiuso; i suoi parametri vengono azzerati. Se lo statement
+ * richiesto è già in uso, ne viene preparato uno non conservato.
+ *
+ * Oltre la capacità della cache viene chiuso lo statement utilizzato meno di
+ * recente.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class StatementCache {
+
+	/**
+	 * Statement preparato conservato nella cache.
+	 */
+	private static class CachedStatement {
+		private PreparedStatement statement;
+		private boolean inUse = false;
+
+		CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	/**
+	 * Gestisce le chiamate allo statement restituito: la chiusura lo riporta
+	 * nella cache, se vi è conservato, e getConnection restituisce la connessione
+	 * prestata invece di quella fisica.
+	 */
+	private static class StatementHandler implements InvocationHandler {
+		private Connection owner;
+		private PreparedStatement statement;
+		private CachedStatement cached;
+		private boolean closed = false;
+
+		StatementHandler(Connection owner, PreparedStatement statement, CachedStatement cached) {
+			this.owner = owner;
+			this.statement = statement;
+			this.cached = cached;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!closed) {
+					closed = true;
+					if (cached == null) {
+						statement.close();
+					} else {
+						try {
+							statement.clearParameters();
+						} finally {
+							cached.inUse = false;
+						}
+					}
+				}
+				return null;
+			case "isClosed":
+				return closed || statement.isClosed();
+			case "getConnection":
+				return owner;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return statement.toString();
+			default:
+				if (closed)
+					throw new SQLException("Statement already closed.");
+				try {
+					return method.invoke(statement, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+
+	private Connection connection;
+	private Map<String, CachedStatement> statements;
+	private AtomicLong hits;
+	private AtomicLong misses;
+
+	/**
+	 * Istanzia la cache degli statement della connessione fisica connection.
+	 *
+	 * @param connection
+	 *            connessione fisica su cui preparare gli statement
+	 * @param capacity
+	 *            numero massimo di statement conservati
+	 * @param hits
+	 *            contatore degli statement trovati nella cache
+	 * @param misses
+	 *            contatore degli statement preparati
+	 */
+	StatementCache(Connection connection, int capacity, AtomicLong hits, AtomicLong misses) {
+		this.connection = connection;
+		this.hits = hits;
+		this.misses = misses;
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= capacity || eldest.getValue().inUse)
+					return false;
+				closeQuietly(eldest.getValue().statement);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Restituisce lo statement preparato per l'interrogazione sql, prendendolo
+	 * dalla cache se disponibile.
+	 *
+	 * @param owner
+	 *            connessione prestata che ha richiesto lo statement
+	 * @param sql
+	 *            interrogazione da preparare
+	 * @param resultSetType
+	 *            tipo dei resultset prodotti
+	 * @param resultSetConcurrency
+	 *            modalità di aggiornamento dei resultset prodotti
+	 * @return statement preparato, da chiudere al termine dell'utilizzo
+	 * @throws SQLException
+	 *             se la preparazione dello statement fallisce
+	 */
+	PreparedStatement prepare(Connection owner, String sql, int resultSetType, int resultSetConcurrency)
+			throws SQLException {
+		String key = resultSetType + ":" + resultSetConcurrency + ":" + sql;
+		CachedStatement cached = statements.get(key);
+		if (cached != null && cached.statement.isClosed()) {
+			statements.remove(key);
+			cached = null;
+		}
+
+		PreparedStatement statement;
+		if (cached == null) {
+			misses.incrementAndGet();
+			statement = connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+			cached = new CachedStatement(statement);
+			statements.put(key, cached);
+		} else if (cached.inUse) {
+			// Lo statement conservato è già aperto: ne prepara uno che verrà chiuso
+			misses.incrementAndGet();
+			statement = connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+			cached = null;
+		} else {
+			hits.incrementAndGet();
+			statement = cached.statement;
+		}
+		if (cached != null)
+			cached.inUse = true;
+
+		return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new StatementHandler(owner, statement, cached));
+	}
+
+	/**
+	 * Chiude tutti gli statement conservati.
+	 */
+	void close() {
+		List<CachedStatement> closing = new ArrayList<CachedStatement>(statements.values());
+		statements.clear();
+		for (CachedStatement cached : closing)
+			closeQuietly(cached.statement);
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			System.out.println("Close statement error: " + e.getMessage());
+		}
+	}
+}
@@ -1,157 +1,190 @@
-package database;
-
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
-
-import database.TableSchema.Column;
-
-/**
- * Questa classe contiene metodi che, connessi al database tramite
- * {@link DbAccess}, permettono di ottenere un insieme di dati dal database.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class TableData {
-
-	private TableData() {
-	}
-
-	/**
-	 * Ricava lo schema della tabella con nome table ed esegue un'interrogazione per
-	 * estrarre le tuple distinte da tale tabella. Per ogni tupla del resultset, si
-	 * crea un oggetto, istanza della classe {@link Row}, il cui riferimento va
-	 * incluso nella lista da restituire.
-	 * 
-	 * @param table
-	 *            Tabella da interrogare
-	 * 
-	 * @return Lista di tuple distinte
-	 * 
-	 * @throws SQLException
-	 *             se ci sono errori nell'esecuzione della query
-	 * @throws EmptySetException
-	 *             se il resultset  vuoto
-	 */
-	public static List<Row> getDistinctTransaction(String table) throws SQLException, EmptySetException {
-		DbAccess.getConnection();
-
-		// Trova lo schema della tabella
-		TableSchema tableSchema = new TableSchema(table);
-
-		Statement statement = DbAccess.getConnection().createStatement();
-		String query = "SELECT DISTINCT * FROM " + table + ";";
-		ResultSet resultSet = statement.executeQuery(query);
-
-		// Verifica se il resultset  vuoto
-		if (resultSet.next() == false) {
-			throw new EmptySetException();
-		} else {
-			resultSet.beforeFirst();
-		}
-
-		// Popola la lista da restituire
-		List<Row> exampleList = new ArrayList<Row>();
-		int numberOfAttributes = tableSchema.getNumberOfAttributes();
-		while (resultSet.next()) {
-			Row currentExample = new Row(numberOfAttributes);
-			for (int i = 1; i <= numberOfAttributes; i++) {
-				if (tableSchema.getColumn(i - 1).isNumber()) {
-					currentExample.add(resultSet.getDouble(i));
-				} else {
-					currentExample.add(resultSet.getString(i));
-				}
-			}
-			exampleList.add(currentExample);
-		}
-
-		return exampleList;
-	}
-
-	/**
-	 * Formula ed esegue un'interrogazione SQL per estrarre i valori distinti
-	 * ordinati di column (nella tabella table) e popolare l'insieme che viene
-	 * restituito.
-	 * 
-	 * @param table
-	 *            nome della tabella da interrogare
-	 * @param column
-	 *            nome della colonna della tabella da cui estrarre i valori
-	 * @return insieme di valori distinti ordinati in modalit ascendente
-	 * @throws SQLException
-	 *             {@link Connection#createStatement()}
-	 *             {@link Statement#executeQuery(String)}
-	 *             {@link ResultSet#getObject(String)}
-	 */
-	public static Set<Object> getDistinctColumnValues(String table, Column column) throws SQLException {
-		Set<Object> set = new TreeSet<Object>();
-
-		// Query
-		Statement statement = DbAccess.getConnection().createStatement();
-		String columnName = column.getColumnName();
-		String query = "SELECT DISTINCT " + columnName + " FROM " + table + " ORDER BY " + columnName + ";";
-		ResultSet resultSet = statement.executeQuery(query);
-
-		// Popola l'insieme ordinato da restituire
-		while (resultSet.next()) {
-			set.add(resultSet.getObject(columnName));
-		}
-
-		return set;
-	}
-
-	/**
-	 * Formula ed esegue un'interrogazione SQL per estrarre il valore aggregato
-	 * (minimo o massimo) cercato nella colonna di nome column della tabella di nome
-	 * table.
-	 * 
-	 * @param table
-	 *            nome della tabella da interrogare
-	 * @param column
-	 *            nome della colonna della tabella da cui estrarre i valori
-	 * @param aggregate
-	 *            tipo di valore aggregato cercato, {@link QUERY_TYPE}
-	 * @return aggregato cercato
-	 * 
-	 * @throws SQLException
-	 *             {@link Connection#createStatement()}
-	 *             {@link Statement#executeQuery(String)}
-	 *             {@link ResultSet#getDouble(int)}
-	 * @throws NoValueException
-	 *             se il valore calcolato  NULL.
-	 * @throws EmptySetException
-	 *             se il resultset  vuoto
-	 */
-	public static Object getAggregateColumnValue(String table, Column column, QUERY_TYPE aggregate)
-			throws SQLException, NoValueException, EmptySetException {
-		Object aggregateObj = null;
-
-		// Query
-		Statement statement = DbAccess.getConnection().createStatement();
-		String columnName = column.getColumnName();
-		String query = "SELECT " + aggregate + "(" + columnName + ") FROM " + table + ";";
-		ResultSet resultSet = statement.executeQuery(query);
-
-		// Verifica che sia stato trovato un risultato e che non sia NULL
-		boolean error = false;
-		if (resultSet.next()) {
-			aggregateObj = resultSet.getDouble(1);
-			error = (aggregateObj == null) ? true : false;
-		} else {
-			throw new EmptySetException();
-		}
-
-		// Lancia l'eccezione se c' stato un errore
-		if (error)
-			throw new NoValueException();
-
-		return aggregateObj;
-	}
-
-}
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import database.TableSchema.Column;
+
+/**
+ * Questa classe contiene metodi che, connessi al database tramite
+ * {@link DbAccess}, permettono di ottenere un insieme di dati dal database.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class TableData {
+
+	/**
+	 * Numero di righe lette dal database a ogni accesso durante la scansione di
+	 * una tabella, configurabile tramite la proprietà di sistema kmeans.fetchSize.
+	 */
+	public static final int DEFAULT_FETCH_SIZE = Integer.getInteger("kmeans.fetchSize", 1000);
+
+	private TableData() {
+	}
+
+	/**
+	 * Esegue un'interrogazione per estrarre le tuple distinte dalla tabella di
+	 * tableSchema e le passa a handler man mano che vengono lette, senza
+	 * memorizzarle. Le colonne della tupla sono quelle di columns, nello stesso
+	 * ordine. Il resultset è scandito con un cursore forward-only, leggendo
+	 * fetchSize righe a ogni accesso al database.
+	 * 
+	 * @param tableSchema
+	 *            schema della tabella da interrogare
+	 * @param columns
+	 *            colonne di tableSchema da estrarre
+	 * @param fetchSize
+	 *            numero di righe lette a ogni accesso al database
+	 * @param handler
+	 *            elaborazione da eseguire su ciascuna tupla
+	 * @throws SQLException
+	 *             se ci sono errori nell'esecuzione della query
+	 * @throws EmptySetException
+	 *             se il resultset è vuoto
+	 */
+	public static void scanDistinctTransaction(TableSchema tableSchema, List<Column> columns, int fetchSize,
+			RowHandler handler) throws SQLException, EmptySetException {
+		scan("SELECT DISTINCT " + getColumnList(columns) + " FROM " + tableSchema.getTableName(), fetchSize,
+				handler);
+	}
+
+	/**
+	 * Esegue un'interrogazione per estrarre tutte le tuple, anche ripetute, dalla
+	 * tabella di tableSchema e le passa a handler man mano che vengono lette, come
+	 * {@link TableData#scanDistinctTransaction(TableSchema, List, int, RowHandler)}.
+	 * Se weightColumn non è null, il suo valore segue quelli di columns.
+	 * 
+	 * @param tableSchema
+	 *            schema della tabella da interrogare
+	 * @param columns
+	 *            colonne di tableSchema da estrarre
+	 * @param weightColumn
+	 *            colonna con il peso di ciascuna riga, oppure null
+	 * @param fetchSize
+	 *            numero di righe lette a ogni accesso al database
+	 * @param handler
+	 *            elaborazione da eseguire su ciascuna tupla
+	 * @throws SQLException
+	 *             se ci sono errori nell'esecuzione della query
+	 * @throws EmptySetException
+	 *             se il resultset è vuoto
+	 */
+	public static void scanTransaction(TableSchema tableSchema, List<Column> columns, Column weightColumn,
+			int fetchSize, RowHandler handler) throws SQLException, EmptySetException {
+		String query = "SELECT " + getColumnList(columns);
+		if (weightColumn != null)
+			query += ", " + weightColumn.getColumnName();
+		scan(query + " FROM " + tableSchema.getTableName(), fetchSize, handler);
+	}
+
+	/**
+	 * Esegue un'interrogazione per estrarre le tuple distinte dalla tabella di
+	 * tableSchema, ciascuna seguita dal suo peso, e le passa a handler man mano
+	 * che vengono lette, come
+	 * {@link TableData#scanDistinctTransaction(TableSchema, List, int, RowHandler)}.
+	 * Il peso di una tupla è la somma dei valori di weightColumn delle righe uguali
+	 * alla tupla oppure, se weightColumn è null, il numero di tali righe.
+	 * 
+	 * @param tableSchema
+	 *            schema della tabella da interrogare
+	 * @param columns
+	 *            colonne di tableSchema da estrarre
+	 * @param weightColumn
+	 *            colonna con il peso di ciascuna riga, oppure null
+	 * @param fetchSize
+	 *            numero di righe lette a ogni accesso al database
+	 * @param handler
+	 *            elaborazione da eseguire su ciascuna tupla
+	 * @throws SQLException
+	 *             se ci sono errori nell'esecuzione della query
+	 * @throws EmptySetException
+	 *             se il resultset è vuoto
+	 */
+	public static void scanGroupedTransaction(TableSchema tableSchema, List<Column> columns, Column weightColumn,
+			int fetchSize, RowHandler handler) throws SQLException, EmptySetException {
+		String columnList = getColumnList(columns);
+		String weight = weightColumn == null ? "COUNT(*)" : "SUM(" + weightColumn.getColumnName() + ")";
+		scan("SELECT " + columnList + ", " + weight + " FROM " + tableSchema.getTableName() + " GROUP BY "
+				+ columnList, fetchSize, handler);
+	}
+
+	/**
+	 * Restituisce l'elenco, separato da virgole, dei nomi delle colonne columns.
+	 * 
+	 * @param columns
+	 *            colonne dell'elenco
+	 * @return elenco delle colonne
+	 */
+	private static String getColumnList(List<Column> columns) {
+		String columnList = "";
+		for (int i = 0; i < columns.size(); i++) {
+			columnList += columns.get(i).getColumnName();
+			if (i != columns.size() - 1)
+				columnList += ", ";
+		}
+		return columnList;
+	}
+
+	/**
+	 * Esegue l'interrogazione query e passa a handler le righe del resultset man
+	 * mano che vengono lette, con un cursore forward-only che legge fetchSize
+	 * righe a ogni accesso al database.
+	 * 
+	 * @param query
+	 *            interrogazione da eseguire
+	 * @param fetchSize
+	 *            numero di righe lette a ogni accesso al database
+	 * @param handler
+	 *            elaborazione da eseguire su ciascuna riga
+	 * @throws SQLException
+	 *             se ci sono errori nell'esecuzione della query
+	 * @throws EmptySetException
+	 *             se il resultset è vuoto
+	 */
+	private static void scan(String query, int fetchSize, RowHandler handler)
+			throws SQLException, EmptySetException {
+		try (Connection connection = DbAccess.getConnection();
+				PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY)) {
+			statement.setFetchSize(fetchSize);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				boolean empty = true;
+				while (resultSet.next()) {
+					empty = false;
+					handler.handleRow(resultSet);
+				}
+
+				// Verifica se il resultset è vuoto
+				if (empty)
+					throw new EmptySetException();
+			}
+		}
+	}
+
+	/**
+	 * Restituisce il numero di righe, non necessariamente distinte, della tabella
+	 * table.
+	 * 
+	 * @param table
+	 *            nome della tabella da interrogare
+	 * @return numero di righe della tabella
+	 * @throws SQLException
+	 *             {@link TableSchema#forTable(String)}
+	 *             {@link Connection#prepareStatement(String)}
+	 *             {@link PreparedStatement#executeQuery()}
+	 */
+	public static long getRowCount(String table) throws SQLException {
+		String query = "SELECT COUNT(*) FROM " + TableSchema.forTable(table).getTableName();
+		try (Connection connection = DbAccess.getConnection();
+				PreparedStatement statement = connection.prepareStatement(query);
+				ResultSet resultSet = statement.executeQuery()) {
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+}
@@ -1,138 +1,231 @@
-package database;
-
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-
-/**
- * Questa classe permette di rappresentare lo schema di una tabella, attraverso
- * l'interrogazione della stessa.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class TableSchema {
-
-	/**
-	 * Questa classe permette di rappresentare una singola colonna di una tabella.
-	 * 
-	 * @author Gianluca Pagliara
-	 *
-	 */
-	public class Column {
-		private String name;
-		private String type;
-
-		/**
-		 * Inizializza gli attributi della colonna, l'identificatore e il tipo dei dati
-		 * memorizzati.
-		 * 
-		 * @param name
-		 *            nome della colonna
-		 * @param type
-		 *            tipo di dati memorizzati nella colonna
-		 */
-		Column(String name, String type) {
-			this.name = name;
-			this.type = type;
-		}
-
-		/**
-		 * Restituisce il nome della colonna.
-		 * 
-		 * @return nome della colonna
-		 */
-		public String getColumnName() {
-			return name;
-		}
-
-		/**
-		 * Restituisce se la colonna memorizza dati di tipo {@link Number}.
-		 * 
-		 * @return <code>true</code> se la colonna contiene valori numerici,
-		 *         <code>false</code> altrimenti.
-		 */
-		public boolean isNumber() {
-			return type.equals("number");
-		}
-
-		/**
-		 * Ritorna una stringa che rappresenta la colonna.
-		 * 
-		 * @return stringa che rappresenta la colonna
-		 */
-		public String toString() {
-			return name + ":" + type;
-		}
-	}
-
-	private List<Column> tableSchema = new ArrayList<Column>();
-
-	/**
-	 * Estrae lo schema dalla tabella, mappando i tipi SQL con quelli di Java.
-	 * 
-	 * @param tableName
-	 *            nome della tabella
-	 * @throws SQLException
-	 *             se ci sono errori nella connessione al database
-	 */
-	public TableSchema(String tableName) throws SQLException {
-		HashMap<String, String> mapSQL_JAVATypes = new HashMap<String, String>();
-		// http://java.sun.com/j2se/1.3/docs/guide/jdbc/getstart/mapping.html
-		mapSQL_JAVATypes.put("CHAR", "string");
-		mapSQL_JAVATypes.put("VARCHAR", "string");
-		mapSQL_JAVATypes.put("LONGVARCHAR", "string");
-		mapSQL_JAVATypes.put("BIT", "string");
-		mapSQL_JAVATypes.put("SHORT", "number");
-		mapSQL_JAVATypes.put("INT", "number");
-		mapSQL_JAVATypes.put("LONG", "number");
-		mapSQL_JAVATypes.put("FLOAT", "number");
-		mapSQL_JAVATypes.put("DOUBLE", "number");
-
-		Connection con = DbAccess.getConnection();
-		DatabaseMetaData meta = con.getMetaData();
-		ResultSet res = meta.getColumns(null, null, tableName, null);
-
-		while (res.next()) {
-			if (mapSQL_JAVATypes.containsKey(res.getString("TYPE_NAME")))
-				tableSchema.add(
-						new Column(res.getString("COLUMN_NAME"), mapSQL_JAVATypes.get(res.getString("TYPE_NAME"))));
-		}
-		res.close();
-
-	}
-
-	/**
-	 * Restituisce lo schema della tabella.
-	 * 
-	 * @return schema della tabella
-	 */
-	public List<Column> getSchema() {
-		return tableSchema;
-	}
-
-	/**
-	 * Restituisce il numero di attributi (o colonne) della tabella.
-	 * 
-	 * @return numero di attributi
-	 */
-	public int getNumberOfAttributes() {
-		return tableSchema.size();
-	}
-
-	/**
-	 * Restituisce la i-esima colonna dello schema.
-	 * 
-	 * @param i
-	 *            indice della colonna da restituire
-	 * @return i-esima colonna
-	 */
-	public Column getColumn(int i) {
-		return tableSchema.get(i);
-	}
-
-}
+package database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Questa classe permette di rappresentare lo schema di una tabella, attraverso
+ * l'interrogazione della stessa.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class TableSchema {
+
+	/**
+	 * Questa classe permette di rappresentare una singola colonna di una tabella.
+	 * 
+	 * @author Gianluca Pagliara
+	 *
+	 */
+	public class Column {
+		private String name;
+		private String type;
+
+		/**
+		 * Inizializza gli attributi della colonna, l'identificatore e il tipo dei dati
+		 * memorizzati.
+		 * 
+		 * @param name
+		 *            nome della colonna
+		 * @param type
+		 *            tipo di dati memorizzati nella colonna
+		 */
+		Column(String name, String type) {
+			this.name = name;
+			this.type = type;
+		}
+
+		/**
+		 * Restituisce il nome della colonna.
+		 * 
+		 * @return nome della colonna
+		 */
+		public String getColumnName() {
+			return name;
+		}
+
+		/**
+		 * Restituisce se la colonna memorizza dati di tipo {@link Number}.
+		 * 
+		 * @return <code>true</code> se la colonna contiene valori numerici,
+		 *         <code>false</code> altrimenti.
+		 */
+		public boolean isNumber() {
+			return type.equals("number");
+		}
+
+		/**
+		 * Ritorna una stringa che rappresenta la colonna.
+		 * 
+		 * @return stringa che rappresenta la colonna
+		 */
+		public String toString() {
+			return name + ":" + type;
+		}
+	}
+
+	// Corrispondenza tra i tipi SQL e quelli di Java
+	// http://java.sun.com/j2se/1.3/docs/guide/jdbc/getstart/mapping.html
+	private static final Map<String, String> MAP_SQL_JAVA_TYPES = new HashMap<String, String>();
+	static {
+		MAP_SQL_JAVA_TYPES.put("CHAR", "string");
+		MAP_SQL_JAVA_TYPES.put("VARCHAR", "string");
+		MAP_SQL_JAVA_TYPES.put("LONGVARCHAR", "string");
+		MAP_SQL_JAVA_TYPES.put("BIT", "string");
+		MAP_SQL_JAVA_TYPES.put("SHORT", "number");
+		MAP_SQL_JAVA_TYPES.put("INT", "number");
+		MAP_SQL_JAVA_TYPES.put("LONG", "number");
+		MAP_SQL_JAVA_TYPES.put("FLOAT", "number");
+		MAP_SQL_JAVA_TYPES.put("DOUBLE", "number");
+	}
+
+	// Forma ammessa per i nomi di tabelle e colonne, che vengono inseriti nel testo
+	// delle interrogazioni
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]{0,63}");
+
+	/**
+	 * Millisecondi per cui uno schema estratto resta valido, configurabili tramite
+	 * la proprietà di sistema kmeans.db.schemaCacheTtl.
+	 */
+	private static final long CACHE_TTL = Long.getLong("kmeans.db.schemaCacheTtl", 300000);
+
+	// schemi già estratti, per nome della tabella
+	private static final Map<String, TableSchema> CACHE = new ConcurrentHashMap<String, TableSchema>();
+
+	private String tableName;
+	private List<Column> tableSchema = new ArrayList<Column>();
+	// istante in cui lo schema è stato estratto
+	private long loadTime;
+
+	/**
+	 * Estrae lo schema dalla tabella, mappando i tipi SQL con quelli di Java. I
+	 * nomi della tabella e delle colonne vengono verificati, così da poter essere
+	 * inseriti senza rischi nel testo delle interrogazioni.
+	 * 
+	 * @param tableName
+	 *            nome della tabella
+	 * @throws SQLException
+	 *             se ci sono errori nella connessione al database, se il nome di
+	 *             una tabella o di una colonna non è valido o se la tabella non ha
+	 *             colonne utilizzabili
+	 */
+	public TableSchema(String tableName) throws SQLException {
+		checkIdentifier(tableName);
+		this.tableName = tableName;
+
+		try (Connection con = DbAccess.getConnection()) {
+			DatabaseMetaData meta = con.getMetaData();
+			try (ResultSet res = meta.getColumns(null, null, tableName, null)) {
+				while (res.next()) {
+					String type = MAP_SQL_JAVA_TYPES.get(res.getString("TYPE_NAME"));
+					if (type != null) {
+						String columnName = res.getString("COLUMN_NAME");
+						checkIdentifier(columnName);
+						tableSchema.add(new Column(columnName, type));
+					}
+				}
+			}
+		}
+
+		if (tableSchema.isEmpty())
+			throw new SQLException("Table " + tableName + " not found.");
+		loadTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Restituisce lo schema della tabella tableName, estraendolo dal database solo
+	 * se non è già stato estratto o se è più vecchio di
+	 * {@link TableSchema#CACHE_TTL} millisecondi.
+	 * 
+	 * @param tableName
+	 *            nome della tabella
+	 * @return schema della tabella
+	 * @throws SQLException
+	 *             {@link TableSchema#TableSchema(String)}
+	 */
+	public static TableSchema forTable(String tableName) throws SQLException {
+		TableSchema schema = CACHE.get(tableName);
+		if (schema == null || System.currentTimeMillis() - schema.loadTime > CACHE_TTL) {
+			schema = new TableSchema(tableName);
+			CACHE.put(tableName, schema);
+		}
+		return schema;
+	}
+
+	/**
+	 * Verifica che name possa essere usato come nome di una tabella o di una
+	 * colonna nel testo di un'interrogazione.
+	 * 
+	 * @param name
+	 *            nome da verificare
+	 * @throws SQLException
+	 *             se il nome non è valido
+	 */
+	private static void checkIdentifier(String name) throws SQLException {
+		if (name == null || !IDENTIFIER.matcher(name).matches())
+			throw new SQLException("Invalid identifier: " + name);
+	}
+
+	/**
+	 * Restituisce il nome della tabella.
+	 * 
+	 * @return nome della tabella
+	 */
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Restituisce lo schema della tabella.
+	 * 
+	 * @return schema della tabella
+	 */
+	public List<Column> getSchema() {
+		return tableSchema;
+	}
+
+	/**
+	 * Restituisce il numero di attributi (o colonne) della tabella.
+	 * 
+	 * @return numero di attributi
+	 */
+	public int getNumberOfAttributes() {
+		return tableSchema.size();
+	}
+
+	/**
+	 * Restituisce la colonna dello schema con nome name.
+	 * 
+	 * @param name
+	 *            nome della colonna
+	 * @return colonna con nome name, null se lo schema non la contiene
+	 */
+	public Column getColumn(String name) {
+		for (Column column : tableSchema) {
+			if (column.getColumnName().equalsIgnoreCase(name))
+				return column;
+		}
+		return null;
+	}
+
+	/**
+	 * Restituisce la i-esima colonna dello schema.
+	 * 
+	 * @param i
+	 *            indice della colonna da restituire
+	 * @return i-esima colonna
+	 */
+	public Column getColumn(int i) {
+		return tableSchema.get(i);
+	}
+
+}
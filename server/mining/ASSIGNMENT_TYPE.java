@@ -0,0 +1,20 @@
+package mining;
+
+/**
+ * Metodi di assegnazione delle tuple al cluster più vicino.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public enum ASSIGNMENT_TYPE {
+	/**
+	 * Calcolo della distanza di ogni tupla da tutti i centroidi,
+	 * {@link LloydAssignment}.
+	 */
+	LLOYD,
+	/**
+	 * Calcolo delle sole distanze non escluse dai limiti di Hamerly,
+	 * {@link HamerlyAssignment}.
+	 */
+	HAMERLY
+}
@@ -0,0 +1,62 @@
+package mining;
+
+/**
+ * Questa classe permette di arrestare un'esecuzione dell'algoritmo KMeans da un
+ * altro thread. L'annullamento e la scadenza del token vengono verificati da
+ * {@link KMeansMiner} a ogni blocco di righe elaborato, sia nell'assegnazione
+ * delle tuple sia nel ricalcolo dei centroidi: l'esecuzione si arresta entro
+ * l'elaborazione di un blocco, conservando i centroidi calcolati fino a quel
+ * momento.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+public class CancellationToken {
+	private volatile boolean cancelled = false;
+	// istante, in millisecondi, oltre il quale l'esecuzione si arresta
+	private long deadline;
+
+	/**
+	 * Istanzia un token senza scadenza.
+	 */
+	public CancellationToken() {
+		this(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Istanzia un token con scadenza deadline.
+	 *
+	 * @param deadline
+	 *            istante, in millisecondi, oltre il quale l'esecuzione si arresta
+	 */
+	public CancellationToken(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Richiede l'annullamento dell'esecuzione.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Verifica se è stato richiesto l'annullamento dell'esecuzione. Viene invocato
+	 * dai thread che eseguono l'algoritmo a ogni blocco di righe.
+	 *
+	 * @return true se l'annullamento è stato richiesto
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Restituisce la scadenza del token.
+	 *
+	 * @return istante, in millisecondi, oltre il quale l'esecuzione si arresta,
+	 *         Long.MAX_VALUE se il token non scade
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+}
@@ -0,0 +1,37 @@
+package mining;
+
+import java.util.Random;
+
+import data.Data;
+import data.DistanceMetric;
+import data.OutOfRangeSampleSizeException;
+
+/**
+ * Strategia di scelta delle tuple da usare come centroidi iniziali
+ * dell'algoritmo KMeans.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+interface CentroidInitializer {
+
+	/**
+	 * Sceglie k tuple di data come centroidi iniziali e ne restituisce gli indici.
+	 * 
+	 * @param data
+	 *            dati da cui scegliere i centroidi
+	 * @param k
+	 *            numero di centroidi da scegliere
+	 * @param random
+	 *            generatore di numeri casuali, da cui dipende interamente la scelta
+	 * @param executor
+	 *            esecutore con cui suddividere le scansioni dei dati
+	 * @param metric
+	 *            misura della distanza tra le tuple
+	 * @return indici delle tuple scelte
+	 * @throws OutOfRangeSampleSizeException
+	 *             se k è minore uguale di 0 o maggiore del numero di tuple distinte
+	 */
+	int[] chooseCentroids(Data data, int k, Random random, ParallelExecutor executor, DistanceMetric metric)
+			throws OutOfRangeSampleSizeException;
+}
@@ -1,157 +1,462 @@
-package mining;
-
-import java.io.Serializable;
-
-import data.Data;
-import data.OutOfRangeSampleSizeException;
-import data.Tuple;
-
-/**
- * Questa classe rappresenta un insieme di cluster determinati dall'algoritmo
- * k-means.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class ClusterSet implements Serializable {
-	private Cluster[] C;
-	private int i = 0; // posizione valida per la memorizzazione di un nuovo cluster in C
-
-	/**
-	 * Istanza un oggetto, inizializzando la dimensione dell'insieme di cluster a k,
-	 * ossia il numero di cluster che verranno generati.
-	 * 
-	 * @param k
-	 *            dimensione dell'insieme
-	 */
-	ClusterSet(int k) {
-		C = new Cluster[k];
-	}
-
-	/**
-	 * Aggiunge un cluster all'insieme.
-	 * 
-	 * @param c
-	 *            cluster da aggiungere
-	 */
-	void add(Cluster c) {
-		C[i++] = c;
-	}
-
-	/**
-	 * Restituisce il cluster che si trova in una posizione specifica.
-	 * 
-	 * @param i
-	 *            indice del cluster da restituire
-	 * @return cluster nella i-esima posizione
-	 */
-	Cluster get(int i) {
-		return C[i];
-	}
-
-	/**
-	 * Sceglie i centroidi e crea un cluster per ogni centroide. Ogni cluster viene
-	 * aggiunto all'insieme.
-	 * 
-	 * @param data
-	 *            dati da cui calcolare i centroidi
-	 * @throws OutOfRangeSampleSizeException
-	 *             {@link Data#sampling(int)}
-	 */
-	void initializeCentroids(Data data) throws OutOfRangeSampleSizeException {
-		int centroidIndexes[] = data.sampling(C.length);
-		for (int i = 0; i < centroidIndexes.length; i++) {
-			Tuple centroidI = data.getItemSet(centroidIndexes[i]);
-			add(new Cluster(centroidI));
-		}
-	}
-
-	/**
-	 * Restituisce il cluster con distanza minima da una specifica tupla.
-	 * 
-	 * @param tuple
-	 *            tupla dalla quale calcolare la distanza dei cluster
-	 * @return cluster meno distante da tuple
-	 */
-	Cluster nearestCluster(Tuple tuple) {
-		double distanceOfNearest = tuple.getDistance(C[0].getCentroid());
-		Cluster nearest = C[0];
-		for (int i = 1; i < C.length; i++) {
-			double currentDistance = tuple.getDistance(C[i].getCentroid());
-			if (currentDistance < distanceOfNearest) {
-				nearest = C[i];
-				distanceOfNearest = currentDistance;
-			}
-		}
-
-		return nearest;
-	}
-
-	/**
-	 * Restituisce il cluster in cui  presente la tupla identificata da id. Se la
-	 * tupla non  presente in nessun cluster, restituisce null.
-	 * 
-	 * @param id
-	 *            id della tupla
-	 * @return cluster contenente la tupla, null altrimenti
-	 */
-	Cluster currentCluster(int id) {
-		Cluster current = null;
-		boolean found = false;
-
-		for (int i = 0; i < C.length && !found; i++) {
-			if (C[i].contain(id)) {
-				current = C[i];
-				found = true;
-			}
-		}
-
-		return current;
-	}
-
-	/**
-	 * Calcola il nuovo centroide per ciascun cluster nell'insieme.
-	 * 
-	 * @param data
-	 *            dati da cui calcolare i centroidi
-	 */
-	void updateCentroids(Data data) {
-		for (int i = 0; i < C.length; i++) {
-			C[i].computeCentroid(data);
-		}
-	}
-
-	/**
-	 * Restituisce la stringa rappresentante lo stato dei centroidi dei cluster
-	 * dell'insieme.
-	 * 
-	 * @return stringa rappresentante lo stato dei centroidi
-	 */
-	public String toString() {
-		String str = "";
-		for (int i = 0; i < C.length; i++) {
-			if (C[i] != null) {
-				str += i + ": " + C[i].toString() + "\n";
-			}
-		}
-		return str;
-	}
-
-	/**
-	 * Restituisce la stringa rappresentante lo stato dei cluster dell'insieme.
-	 * 
-	 * @param data
-	 *            dati dei cluster dell'insieme
-	 * @return stringa rappresentante lo stato dei cluster
-	 */
-	public String toString(Data data) {
-		String str = "";
-		for (int i = 0; i < C.length; i++) {
-			if (C[i] != null) {
-				str += i + ": " + C[i].toString(data) + "\n";
-			}
-		}
-		return str;
-	}
-
-}
+package mining;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import data.CentroidAccumulator;
+import data.Data;
+import data.DistanceKernel;
+import data.DistanceMetric;
+import data.ManhattanDistance;
+import data.OutOfRangeSampleSizeException;
+import data.Tuple;
+
+/**
+ * Questa classe rappresenta un insieme di cluster determinati dall'algoritmo
+ * k-means.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class ClusterSet implements Serializable {
+	private Cluster[] C;
+	private int i = 0; // posizione valida per la memorizzazione di un nuovo cluster in C
+	// indice del cluster a cui appartiene ciascuna tupla, -1 se non clusterizzata
+	private int[] membership;
+	// misura della distanza tra le tuple e i centroidi
+	private DistanceMetric metric = new ManhattanDistance();
+
+	/**
+	 * Istanza un oggetto, inizializzando la dimensione dell'insieme di cluster a k,
+	 * ossia il numero di cluster che verranno generati.
+	 * 
+	 * @param k
+	 *            dimensione dell'insieme
+	 */
+	ClusterSet(int k) {
+		C = new Cluster[k];
+	}
+
+	/**
+	 * Aggiunge un cluster all'insieme.
+	 * 
+	 * @param c
+	 *            cluster da aggiungere
+	 */
+	void add(Cluster c) {
+		C[i++] = c;
+	}
+
+	/**
+	 * Imposta la misura della distanza tra le tuple e i centroidi.
+	 * 
+	 * @param metric
+	 *            misura della distanza
+	 */
+	void setDistanceMetric(DistanceMetric metric) {
+		this.metric = metric;
+	}
+
+	/**
+	 * Restituisce la misura della distanza tra le tuple e i centroidi.
+	 * 
+	 * @return misura della distanza
+	 */
+	DistanceMetric getDistanceMetric() {
+		return metric;
+	}
+
+	/**
+	 * Restituisce il numero di cluster dell'insieme.
+	 * 
+	 * @return numero di cluster
+	 */
+	int getNumberOfClusters() {
+		return C.length;
+	}
+
+	/**
+	 * Restituisce l'indice del cluster a cui appartiene ciascuna tupla, -1 per le
+	 * tuple non ancora clusterizzate.
+	 * 
+	 * @return indici dei cluster delle tuple
+	 */
+	int[] getMembership() {
+		return membership;
+	}
+
+	/**
+	 * Restituisce una copia dei centroidi dei cluster dell'insieme.
+	 * 
+	 * @return copie dei centroidi, nell'ordine dei cluster
+	 */
+	Tuple[] copyCentroids() {
+		Tuple[] centroids = new Tuple[C.length];
+		for (int i = 0; i < C.length; i++) {
+			centroids[i] = C[i].getCentroid().copy();
+		}
+		return centroids;
+	}
+
+	/**
+	 * Restituisce il cluster che si trova in una posizione specifica.
+	 * 
+	 * @param i
+	 *            indice del cluster da restituire
+	 * @return cluster nella i-esima posizione
+	 */
+	Cluster get(int i) {
+		return C[i];
+	}
+
+	/**
+	 * Sceglie i centroidi con initializer e crea un cluster per ogni centroide.
+	 * Ogni cluster viene aggiunto all'insieme. La misura della distanza viene
+	 * prima preparata per data, {@link DistanceMetric#prepare(Data)}.
+	 * 
+	 * @param data
+	 *            dati da cui calcolare i centroidi
+	 * @param initializer
+	 *            strategia di scelta dei centroidi
+	 * @param random
+	 *            generatore di numeri casuali da cui dipende la scelta
+	 * @param executor
+	 *            esecutore con cui suddividere le scansioni dei dati
+	 * @throws OutOfRangeSampleSizeException
+	 *             {@link CentroidInitializer#chooseCentroids(Data, int, Random, ParallelExecutor, DistanceMetric)}
+	 */
+	void initializeCentroids(Data data, CentroidInitializer initializer, Random random, ParallelExecutor executor)
+			throws OutOfRangeSampleSizeException {
+		metric.prepare(data);
+		int centroidIndexes[] = initializer.chooseCentroids(data, C.length, random, executor, metric);
+		membership = new int[data.getNumberOfTuples()];
+		Arrays.fill(membership, -1);
+		for (int i = 0; i < centroidIndexes.length; i++) {
+			Tuple centroidI = data.getItemSet(centroidIndexes[i]);
+			add(new Cluster(centroidI, i, membership));
+		}
+	}
+
+	/**
+	 * Restituisce l'oggetto con cui calcolare le distanze tra le righe di data e
+	 * i centroidi attuali dei cluster dell'insieme.
+	 * 
+	 * @param data
+	 *            dati di cui calcolare le distanze
+	 * @return calcolatore delle distanze dai centroidi attuali
+	 */
+	DistanceKernel getDistanceKernel(Data data) {
+		Tuple[] centroids = new Tuple[C.length];
+		for (int i = 0; i < C.length; i++)
+			centroids[i] = C[i].getCentroid();
+		return new DistanceKernel(data, centroids, metric);
+	}
+
+	/**
+	 * Restituisce l'indice del cluster con distanza minima dalla riga row, con le
+	 * distanze calcolate da kernel. A parità di distanza prevale il cluster con
+	 * indice minore.
+	 * 
+	 * @param kernel
+	 *            calcolatore delle distanze dai centroidi attuali
+	 * @param row
+	 *            riga dalla quale calcolare la distanza dei cluster
+	 * @param distances
+	 *            array di appoggio, di lunghezza pari al numero di cluster
+	 * @return indice del cluster meno distante dalla riga
+	 */
+	static int nearestCluster(DistanceKernel kernel, int row, double[] distances) {
+		kernel.distances(row, distances);
+		return nearest(distances, 0, 1, distances.length);
+	}
+
+	/**
+	 * Restituisce l'indice della distanza minima tra le numberOfClusters distanze
+	 * memorizzate in distances a partire da offset, a distanza stride l'una
+	 * dall'altra. A parità di distanza prevale l'indice minore.
+	 */
+	private static int nearest(double[] distances, int offset, int stride, int numberOfClusters) {
+		int nearest = 0;
+		double distanceOfNearest = distances[offset];
+		for (int c = 1; c < numberOfClusters; c++) {
+			double currentDistance = distances[offset + c * stride];
+			if (currentDistance < distanceOfNearest) {
+				nearest = c;
+				distanceOfNearest = currentDistance;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * Assegna ciascuna tupla di data al cluster più vicino, elaborando le righe in
+	 * parallelo con executor. Restituisce il numero di tuple che hanno cambiato
+	 * cluster.
+	 * 
+	 * @param data
+	 *            dati da clusterizzare
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @return numero di tuple che hanno cambiato cluster
+	 * @throws ExecutionStoppedException
+	 *             {@link ParallelExecutor#checkpoint()}
+	 */
+	int assignTuples(Data data, ParallelExecutor executor) {
+		DistanceKernel kernel = getDistanceKernel(data);
+		int changedTuples = 0;
+		for (int changes : executor.execute(data.getNumberOfTuples(),
+				(from, to) -> assignTuples(kernel, from, to, executor)))
+			changedTuples += changes;
+		return changedTuples;
+	}
+
+	/**
+	 * Assegna al cluster più vicino le tuple con indice compreso tra from
+	 * (incluso) e to (escluso), calcolandone le distanze da tutti i centroidi a
+	 * blocchi di {@link DistanceKernel#BLOCK_SIZE} righe. Restituisce il numero di
+	 * tuple che hanno cambiato cluster.
+	 * 
+	 * @param kernel
+	 *            calcolatore delle distanze dai centroidi attuali
+	 * @param from
+	 *            prima tupla da assegnare
+	 * @param to
+	 *            tupla successiva all'ultima da assegnare
+	 * @param executor
+	 *            esecutore da cui dipende l'arresto dell'elaborazione
+	 * @return numero di tuple che hanno cambiato cluster
+	 */
+	private int assignTuples(DistanceKernel kernel, int from, int to, ParallelExecutor executor) {
+		int changedTuples = 0;
+		double[] distances = new double[DistanceKernel.BLOCK_SIZE * C.length];
+		for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+			executor.checkpoint();
+			int end = Math.min(start + DistanceKernel.BLOCK_SIZE, to);
+			kernel.distances(start, end, distances);
+			for (int id = start; id < end; id++) {
+				int nearest = nearest(distances, id - start, end - start, C.length);
+				if (membership[id] != nearest) {
+					membership[id] = nearest;
+					changedTuples++;
+				}
+			}
+		}
+		return changedTuples;
+	}
+
+	/**
+	 * Restituisce la somma delle distanze, pesate con il peso delle tuple, di
+	 * ciascuna tupla di data dal centroide del cluster a cui è assegnata.
+	 * 
+	 * @param data
+	 *            dati clusterizzati
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @return somma pesata delle distanze dai centroidi
+	 * @throws ExecutionStoppedException
+	 *             {@link ParallelExecutor#checkpoint()}
+	 */
+	double computeInertia(Data data, ParallelExecutor executor) {
+		DistanceKernel kernel = getDistanceKernel(data);
+		double inertia = 0;
+		for (double partial : executor.execute(data.getNumberOfTuples(), (from, to) -> {
+			double sum = 0;
+			for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+				executor.checkpoint();
+				int end = Math.min(start + DistanceKernel.BLOCK_SIZE, to);
+				for (int row = start; row < end; row++) {
+					if (membership[row] >= 0)
+						sum += data.getWeight(row) * kernel.distance(row, membership[row]);
+				}
+			}
+			return sum;
+		}))
+			inertia += partial;
+		return inertia;
+	}
+
+	/**
+	 * Restituisce il cluster in cui è presente la tupla identificata da id. Se la
+	 * tupla non è presente in nessun cluster, restituisce null.
+	 * 
+	 * @param id
+	 *            id della tupla
+	 * @return cluster contenente la tupla, null altrimenti
+	 */
+	Cluster currentCluster(int id) {
+		int current = membership[id];
+		return current < 0 ? null : C[current];
+	}
+
+	/**
+	 * Calcola il nuovo centroide per ciascun cluster nell'insieme, accumulando le
+	 * tuple di tutti i cluster con un'unica scansione di data. Le righe sono
+	 * accumulate in parallelo con executor e i risultati parziali vengono
+	 * combinati nell'ordine degli intervalli. Restituisce lo spostamento massimo
+	 * dei centroidi. Se l'esecuzione si arresta durante la scansione, i centroidi
+	 * non vengono modificati.
+	 * 
+	 * @param data
+	 *            dati da cui calcolare i centroidi
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @return spostamento massimo dei centroidi,
+	 *         {@link ClusterSet#updateCentroids(CentroidAccumulator)}
+	 * @throws ExecutionStoppedException
+	 *             {@link ParallelExecutor#checkpoint()}
+	 */
+	double updateCentroids(Data data, ParallelExecutor executor) {
+		List<CentroidAccumulator> partials = executor.execute(data.getNumberOfTuples(), (from, to) -> {
+			CentroidAccumulator partial = new CentroidAccumulator(data, C.length);
+			for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+				executor.checkpoint();
+				partial.accumulate(membership, start, Math.min(start + DistanceKernel.BLOCK_SIZE, to));
+			}
+			return partial;
+		});
+		CentroidAccumulator accumulator = partials.get(0);
+		for (int i = 1; i < partials.size(); i++)
+			accumulator.merge(partials.get(i));
+		return updateCentroids(accumulator);
+	}
+
+	/**
+	 * Calcola il nuovo centroide per ciascun cluster nell'insieme rispetto alle
+	 * informazioni accumulate in accumulator e restituisce lo spostamento massimo
+	 * tra i centroidi, ossia la massima distanza tra un centroide e il suo valore
+	 * precedente.
+	 * 
+	 * @param accumulator
+	 *            informazioni accumulate sui dati dei cluster
+	 * @return spostamento massimo dei centroidi
+	 */
+	double updateCentroids(CentroidAccumulator accumulator) {
+		Tuple[] previous = copyCentroids();
+		double maxShift = 0;
+		for (int i = 0; i < C.length; i++) {
+			C[i].computeCentroid(accumulator);
+			maxShift = Math.max(maxShift, previous[i].getDistance(C[i].getCentroid(), metric));
+		}
+		return maxShift;
+	}
+
+	/**
+	 * Aggiorna il numero di tuple di ciascun cluster contando le tuple a esso
+	 * assegnate. Non ha effetto se i cluster non sono ancora stati creati.
+	 */
+	void countTuples() {
+		if (membership == null)
+			return;
+		int[] counts = new int[C.length];
+		for (int cluster : membership) {
+			if (cluster >= 0)
+				counts[cluster]++;
+		}
+		for (int i = 0; i < C.length; i++) {
+			C[i].setSize(counts[i]);
+		}
+	}
+
+	/**
+	 * Scrive su out lo stato dei cluster dell'insieme nel formato binario del
+	 * server:
+	 * <ul>
+	 * <li>lo schema dei centroidi, {@link Tuple#writeSchema(DataOutput)};</li>
+	 * <li>il numero di cluster e, per ciascuno, l'indice, il numero di tuple, la
+	 * distanza media delle tuple dal centroide (NaN se data è null) e il
+	 * centroide, {@link Tuple#write(DataOutput)};</li>
+	 * <li>il numero di tuple di data (0 se data è null), il numero di byte con cui
+	 * è scritto l'indice del cluster di ciascuna tupla (1, 2 o 4) e, per ogni
+	 * tupla, l'indice del suo cluster aumentato di uno, così che le tuple non
+	 * clusterizzate valgano 0.</li>
+	 * </ul>
+	 * 
+	 * @param out
+	 *            destinazione dello stato dei cluster
+	 * @param data
+	 *            dati dei cluster dell'insieme, oppure null
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	public void write(DataOutput out, Data data) throws IOException {
+		int numberOfClusters = 0;
+		Tuple schema = null;
+		for (Cluster cluster : C) {
+			if (cluster != null) {
+				numberOfClusters++;
+				if (schema == null)
+					schema = cluster.getCentroid();
+			}
+		}
+		if (schema == null)
+			out.writeInt(0);
+		else
+			schema.writeSchema(out);
+
+		out.writeInt(numberOfClusters);
+		for (int i = 0; i < C.length; i++) {
+			if (C[i] != null) {
+				out.writeInt(i);
+				out.writeInt(C[i].getSize());
+				out.writeDouble(data == null || membership == null ? Double.NaN
+						: C[i].getCentroid().avgDistance(data, membership, i, metric));
+				C[i].getCentroid().write(out);
+			}
+		}
+
+		if (data == null || membership == null) {
+			out.writeInt(0);
+			out.writeByte(1);
+			return;
+		}
+		int width = C.length <= 0xFF ? 1 : C.length <= 0xFFFF ? 2 : 4;
+		out.writeInt(membership.length);
+		out.writeByte(width);
+		for (int cluster : membership) {
+			if (width == 1)
+				out.writeByte(cluster + 1);
+			else if (width == 2)
+				out.writeShort(cluster + 1);
+			else
+				out.writeInt(cluster + 1);
+		}
+	}
+
+	/**
+	 * Restituisce la stringa rappresentante lo stato dei centroidi dei cluster
+	 * dell'insieme.
+	 * 
+	 * @return stringa rappresentante lo stato dei centroidi
+	 */
+	public String toString() {
+		String str = "";
+		for (int i = 0; i < C.length; i++) {
+			if (C[i] != null) {
+				str += i + ": " + C[i].toString() + "\n";
+			}
+		}
+		return str;
+	}
+
+	/**
+	 * Restituisce la stringa rappresentante lo stato dei cluster dell'insieme.
+	 * 
+	 * @param data
+	 *            dati dei cluster dell'insieme
+	 * @return stringa rappresentante lo stato dei cluster
+	 */
+	public String toString(Data data) {
+		String str = "";
+		for (int i = 0; i < C.length; i++) {
+			if (C[i] != null) {
+				str += i + ": " + C[i].toString(data, metric) + "\n";
+			}
+		}
+		return str;
+	}
+
+}
@@ -0,0 +1,37 @@
+package mining;
+
+/**
+ * Eccezione sollevata da {@link ParallelExecutor#checkpoint()}, durante
+ * l'elaborazione di un blocco di righe, se l'esecuzione dell'algoritmo è stata
+ * annullata o ha superato la scadenza.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class ExecutionStoppedException extends RuntimeException {
+	private STOP_REASON reason;
+
+	/**
+	 * Istanzia l'eccezione con il criterio di arresto reason.
+	 *
+	 * @param reason
+	 *            {@link STOP_REASON#CANCELLED} oppure {@link STOP_REASON#DEADLINE}
+	 */
+	ExecutionStoppedException(STOP_REASON reason) {
+		this.reason = reason;
+	}
+
+	/**
+	 * Restituisce il criterio per cui l'esecuzione si è arrestata.
+	 *
+	 * @return criterio di arresto
+	 */
+	STOP_REASON getReason() {
+		return reason;
+	}
+
+	@Override
+	public String getMessage() {
+		return "Execution stopped: " + reason + ".";
+	}
+}
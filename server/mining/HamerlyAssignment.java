@@ -0,0 +1,162 @@
+package mining;
+
+import java.util.List;
+
+import data.Data;
+import data.DistanceKernel;
+import data.DistanceMetric;
+import data.Tuple;
+
+/**
+ * Questa classe estende {@link LloydAssignment} riducendo il numero di distanze
+ * calcolate con l'algoritmo di Hamerly. Per ogni tupla mantiene un limite
+ * superiore alla distanza dal proprio centroide e un limite inferiore alla
+ * distanza dal secondo centroide più vicino; i limiti vengono corretti dello
+ * spostamento dei centroidi a ogni iterazione. Se il limite superiore è minore
+ * sia del limite inferiore sia di metà della distanza tra il centroide della
+ * tupla e il centroide a esso più vicino, la tupla non può cambiare cluster e le
+ * sue distanze non vengono calcolate.
+ *
+ * I limiti sono validi solo se la distanza tra tuple soddisfa la disuguaglianza
+ * triangolare, {@link DistanceMetric#satisfiesTriangleInequality()}: con le
+ * altre distanze {@link KMeansMiner} usa {@link LloydAssignment}. I confronti
+ * sono stretti,
+ * quindi le assegnazioni coincidono con quelle di {@link LloydAssignment} anche
+ * in caso di distanze uguali.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class HamerlyAssignment extends LloydAssignment {
+	// limite superiore alla distanza di ciascuna tupla dal proprio centroide
+	private double[] upper;
+	// limite inferiore alla distanza di ciascuna tupla dal secondo centroide più
+	// vicino
+	private double[] lower;
+
+	/**
+	 * Istanzia l'oggetto per numberOfTuples tuple.
+	 *
+	 * @param numberOfTuples
+	 *            numero di tuple da clusterizzare
+	 */
+	HamerlyAssignment(int numberOfTuples) {
+		upper = new double[numberOfTuples];
+		lower = new double[numberOfTuples];
+	}
+
+	/**
+	 * Assegna ciascuna tupla di data al cluster più vicino dell'insieme clusters,
+	 * calcolandone le distanze dai centroidi solo se i limiti non bastano a
+	 * escludere un cambio di cluster. Restituisce il numero di tuple che hanno
+	 * cambiato cluster. Se l'esecuzione si arresta durante l'assegnazione, le
+	 * tuple non ancora elaborate restano nel cluster precedente.
+	 */
+	@Override
+	int assignTuples(ClusterSet clusters, Data data, ParallelExecutor executor) {
+		int numberOfClusters = clusters.getNumberOfClusters();
+		int[] membership = clusters.getMembership();
+		Tuple[] centroids = new Tuple[numberOfClusters];
+		for (int c = 0; c < numberOfClusters; c++)
+			centroids[c] = clusters.get(c).getCentroid();
+		DistanceMetric metric = clusters.getDistanceMetric();
+		DistanceKernel kernel = new DistanceKernel(data, centroids, metric);
+
+		// Metà della distanza di ciascun centroide dal centroide a esso più vicino
+		double[] halfSeparation = new double[numberOfClusters];
+		for (int c = 0; c < numberOfClusters; c++) {
+			halfSeparation[c] = Double.POSITIVE_INFINITY;
+			for (int other = 0; other < numberOfClusters; other++) {
+				if (other != c)
+					halfSeparation[c] = Math.min(halfSeparation[c], centroids[c].getDistance(centroids[other], metric) / 2);
+			}
+		}
+
+		List<Integer> partials = executor.execute(data.getNumberOfTuples(), (from, to) -> {
+			int changedTuples = 0;
+			double[] distances = new double[numberOfClusters];
+			for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+				executor.checkpoint();
+				int end = Math.min(start + DistanceKernel.BLOCK_SIZE, to);
+				for (int row = start; row < end; row++) {
+					int current = membership[row];
+					if (current >= 0) {
+						double bound = Math.max(halfSeparation[current], lower[row]);
+						if (upper[row] < bound)
+							continue;
+						upper[row] = centroids[current].getDistance(data, row, metric);
+						if (upper[row] < bound)
+							continue;
+					}
+
+					kernel.distances(row, distances);
+					int nearest = 0;
+					double distanceOfNearest = Double.POSITIVE_INFINITY;
+					double distanceOfSecond = Double.POSITIVE_INFINITY;
+					for (int c = 0; c < numberOfClusters; c++) {
+						double distance = distances[c];
+						if (distance < distanceOfNearest) {
+							distanceOfSecond = distanceOfNearest;
+							distanceOfNearest = distance;
+							nearest = c;
+						} else if (distance < distanceOfSecond) {
+							distanceOfSecond = distance;
+						}
+					}
+					upper[row] = distanceOfNearest;
+					lower[row] = distanceOfSecond;
+					if (current != nearest) {
+						membership[row] = nearest;
+						changedTuples++;
+					}
+				}
+			}
+			return changedTuples;
+		});
+
+		int changedTuples = 0;
+		for (int changes : partials)
+			changedTuples += changes;
+		return changedTuples;
+	}
+
+	/**
+	 * Ricalcola i centroidi dei cluster dell'insieme clusters e corregge i limiti
+	 * di ogni tupla dello spostamento dei centroidi.
+	 */
+	@Override
+	double updateCentroids(ClusterSet clusters, Data data, ParallelExecutor executor) {
+		Tuple[] previous = clusters.copyCentroids();
+		double maxShift = super.updateCentroids(clusters, data, executor);
+
+		int numberOfClusters = clusters.getNumberOfClusters();
+		double[] drift = new double[numberOfClusters];
+		int farthest = 0;
+		double secondDrift = 0;
+		for (int c = 0; c < numberOfClusters; c++) {
+			drift[c] = previous[c].getDistance(clusters.get(c).getCentroid(), clusters.getDistanceMetric());
+			if (drift[c] > drift[farthest]) {
+				secondDrift = drift[farthest];
+				farthest = c;
+			} else if (c != farthest && drift[c] > secondDrift) {
+				secondDrift = drift[c];
+			}
+		}
+		double maxDrift = drift[farthest];
+		int farthestCluster = farthest;
+		double secondMaxDrift = secondDrift;
+
+		int[] membership = clusters.getMembership();
+		executor.execute(data.getNumberOfTuples(), (from, to) -> {
+			for (int row = from; row < to; row++) {
+				int current = membership[row];
+				if (current < 0)
+					continue;
+				upper[row] += drift[current];
+				lower[row] -= current == farthestCluster ? secondMaxDrift : maxDrift;
+			}
+			return null;
+		});
+		return maxShift;
+	}
+}
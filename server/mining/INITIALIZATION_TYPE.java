@@ -0,0 +1,22 @@
+package mining;
+
+/**
+ * Metodi di scelta dei centroidi iniziali dell'algoritmo KMeans.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public enum INITIALIZATION_TYPE {
+	/**
+	 * k tuple scelte in modo uniforme, {@link data.Data#sampling(int, java.util.Random)}.
+	 */
+	RANDOM,
+	/**
+	 * k-means++, {@link KMeansPlusPlusInitializer}.
+	 */
+	KMEANS_PLUS_PLUS,
+	/**
+	 * k-means||, {@link KMeansParallelInitializer}.
+	 */
+	KMEANS_PARALLEL
+}
@@ -1,121 +1,543 @@
-package mining;
-
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-
-import data.Data;
-import data.OutOfRangeSampleSizeException;
-
-/**
- * Classe che implementa l'esecuzione dell'algoritmo KMeans.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class KMeansMiner {
-	ClusterSet C;
-
-	/**
-	 * Istanzia l'oggetto e inizializza l'insieme di cluster ad una dimensione
-	 * specifica.
-	 * 
-	 * @param size
-	 *            dimensione dell'insieme di cluster
-	 */
-	public KMeansMiner(int size) {
-		C = new ClusterSet(size);
-	}
-
-	/**
-	 * Carica l'insieme di cluster dal file con nome fileName.
-	 * 
-	 * @param fileName
-	 *            percorso del file da cui caricare i dati
-	 * @throws FileNotFoundException
-	 *             {@link FileInputStream#FileInputStream(String)}
-	 * @throws ClassNotFoundException
-	 *             {@link ObjectInputStream#readObject()}
-	 * @throws IOException
-	 *             {@link ObjectInputStream#ObjectInputStream(java.io.InputStream)}
-	 *             {@link ObjectInputStream#readObject()}
-	 *             {@link ObjectInputStream#close()} {@link FileInputStream#close()}
-	 */
-	public KMeansMiner(String fileName) throws FileNotFoundException, IOException, ClassNotFoundException {
-		FileInputStream inputFile = new FileInputStream(fileName);
-		ObjectInputStream inputStream = new ObjectInputStream(inputFile);
-		C = (ClusterSet) inputStream.readObject();
-		inputStream.close();
-		inputFile.close();
-	}
-
-	/**
-	 * Salva l'insieme di cluster sul file con nome fileName.
-	 * 
-	 * @param fileName
-	 *            percorso del file in cui salvare i dati
-	 * @throws FileNotFoundException
-	 *             {@link FileOutputStream#FileOutputStream(String)}
-	 * @throws IOException
-	 *             {@link ObjectOutputStream#ObjectOutputStream(java.io.OutputStream)}
-	 *             {@link ObjectOutputStream#writeObject(Object)}
-	 *             {@link ObjectOutputStream#close()}
-	 *             {@link FileOutputStream#close()}
-	 */
-	public void save(String fileName) throws FileNotFoundException, IOException {
-		FileOutputStream outFile = new FileOutputStream(fileName);
-		ObjectOutputStream outStream = new ObjectOutputStream(outFile);
-		outStream.writeObject(C);
-		outStream.close();
-		outFile.close();
-	}
-
-	/**
-	 * Restituisce l'insieme di cluster ({@link ClusterSet}).
-	 * 
-	 * @return insieme di cluster
-	 */
-	public ClusterSet getC() {
-		return C;
-	}
-
-	/**
-	 * Esegue l'algoritmo KMeans e restituisce il numero di iterazioni eseguite.
-	 * 
-	 * @param data
-	 *            dati su cui eseguire l'algoritmo
-	 * @return numero di iterazioni eseguite
-	 * @throws OutOfRangeSampleSizeException
-	 *             {@link ClusterSet#initializeCentroids(Data)}
-	 */
-	public int kmeans(Data data) throws OutOfRangeSampleSizeException {
-		int numberOfIterations = 0;
-		// STEP 1
-		C.initializeCentroids(data);
-		boolean changedCluster = false;
-		do {
-			numberOfIterations++;
-			// STEP 2
-			changedCluster = false;
-			for (int i = 0; i < data.getNumberOfTuples(); i++) {
-				Cluster nearestCluster = C.nearestCluster(data.getItemSet(i));
-				Cluster oldCluster = C.currentCluster(i);
-				boolean currentChange = nearestCluster.addData(i);
-				if (currentChange)
-					changedCluster = true;
-				// rimuovo la tupla dal vecchio cluster
-				if (currentChange && oldCluster != null)
-					// il nodo va rimosso dal suo vecchio cluster
-					oldCluster.removeTuple(i);
-
-			}
-			// STEP 3
-			C.updateCentroids(data);
-		} while (changedCluster);
-		return numberOfIterations;
-	}
-
-}
+package mining;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import data.CentroidAccumulator;
+
+import data.Data;
+import data.DistanceKernel;
+import data.DistanceMetric;
+import data.ManhattanDistance;
+import data.OutOfRangeSampleSizeException;
+
+/**
+ * Classe che implementa l'esecuzione dell'algoritmo KMeans.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class KMeansMiner {
+	ClusterSet C;
+	// numero di thread con cui eseguire l'algoritmo
+	private int numberOfThreads = 1;
+	// metodo di scelta dei centroidi iniziali
+	private INITIALIZATION_TYPE initialization = INITIALIZATION_TYPE.KMEANS_PLUS_PLUS;
+	// seme del generatore di numeri casuali usato per scegliere i centroidi
+	private long seed = System.currentTimeMillis();
+	// metodo di assegnazione delle tuple al cluster più vicino
+	private ASSIGNMENT_TYPE assignment = ASSIGNMENT_TYPE.HAMERLY;
+	// numero di tuple di ciascun mini-batch, 0 per eseguire l'algoritmo su tutti i
+	// dati a ogni iterazione
+	private int batchSize = 0;
+	// numero massimo di mini-batch
+	private int maxBatches = 100;
+	// true se al termine della modalità mini-batch tutte le tuple vengono
+	// assegnate al centroide più vicino
+	private boolean finalAssignment = true;
+	// spostamento massimo dei centroidi al di sotto del quale l'algoritmo termina
+	private double shiftTolerance = 0;
+	// numero massimo di iterazioni
+	private int maxIterations = 300;
+	// frazione di tuple riassegnate al di sotto della quale l'algoritmo termina
+	private double reassignmentTolerance = 0;
+	// tempo massimo di esecuzione in millisecondi, 0 per non porre limiti
+	private long timeLimit = 0;
+	// criterio per cui è terminata l'ultima esecuzione dell'algoritmo
+	private STOP_REASON stopReason;
+	// destinatario dell'avanzamento dell'esecuzione, null se non richiesto
+	private ProgressListener listener;
+	// token da cui dipende l'annullamento dell'esecuzione, null se non richiesto
+	private CancellationToken token;
+
+	/**
+	 * Istanzia l'oggetto e inizializza l'insieme di cluster ad una dimensione
+	 * specifica.
+	 * 
+	 * @param size
+	 *            dimensione dell'insieme di cluster
+	 */
+	public KMeansMiner(int size) {
+		C = new ClusterSet(size);
+	}
+
+	/**
+	 * Carica l'insieme di cluster dal file con nome fileName.
+	 * 
+	 * @param fileName
+	 *            percorso del file da cui caricare i dati
+	 * @throws FileNotFoundException
+	 *             {@link FileInputStream#FileInputStream(String)}
+	 * @throws ClassNotFoundException
+	 *             {@link ObjectInputStream#readObject()}
+	 * @throws IOException
+	 *             {@link ObjectInputStream#ObjectInputStream(java.io.InputStream)}
+	 *             {@link ObjectInputStream#readObject()}
+	 *             {@link ObjectInputStream#close()} {@link FileInputStream#close()}
+	 */
+	public KMeansMiner(String fileName) throws FileNotFoundException, IOException, ClassNotFoundException {
+		FileInputStream inputFile = new FileInputStream(fileName);
+		ObjectInputStream inputStream = new ObjectInputStream(inputFile);
+		C = (ClusterSet) inputStream.readObject();
+		inputStream.close();
+		inputFile.close();
+	}
+
+	/**
+	 * Salva l'insieme di cluster sul file con nome fileName.
+	 * 
+	 * @param fileName
+	 *            percorso del file in cui salvare i dati
+	 * @throws FileNotFoundException
+	 *             {@link FileOutputStream#FileOutputStream(String)}
+	 * @throws IOException
+	 *             {@link ObjectOutputStream#ObjectOutputStream(java.io.OutputStream)}
+	 *             {@link ObjectOutputStream#writeObject(Object)}
+	 *             {@link ObjectOutputStream#close()}
+	 *             {@link FileOutputStream#close()}
+	 */
+	public void save(String fileName) throws FileNotFoundException, IOException {
+		FileOutputStream outFile = new FileOutputStream(fileName);
+		ObjectOutputStream outStream = new ObjectOutputStream(outFile);
+		outStream.writeObject(C);
+		outStream.close();
+		outFile.close();
+	}
+
+	/**
+	 * Restituisce l'insieme di cluster ({@link ClusterSet}).
+	 * 
+	 * @return insieme di cluster
+	 */
+	public ClusterSet getC() {
+		return C;
+	}
+
+	/**
+	 * Imposta il numero di thread con cui eseguire l'algoritmo. Il numero
+	 * effettivo è limitato dal massimo configurato per il server.
+	 * 
+	 * @param numberOfThreads
+	 *            numero di thread richiesti
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * Imposta il metodo di scelta dei centroidi iniziali.
+	 * 
+	 * @param initialization
+	 *            metodo di scelta dei centroidi
+	 */
+	public void setInitialization(INITIALIZATION_TYPE initialization) {
+		this.initialization = initialization;
+	}
+
+	/**
+	 * Imposta il seme del generatore di numeri casuali con cui vengono scelti i
+	 * centroidi iniziali: a parità di seme, dati e numero di thread l'algoritmo
+	 * produce sempre lo stesso risultato.
+	 * 
+	 * @param seed
+	 *            seme del generatore
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Restituisce il seme del generatore di numeri casuali.
+	 * 
+	 * @return seme del generatore
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Imposta il metodo di assegnazione delle tuple al cluster più vicino. Il
+	 * metodo {@link ASSIGNMENT_TYPE#HAMERLY} viene usato solo se la misura della
+	 * distanza soddisfa la disuguaglianza triangolare, altrimenti le tuple sono
+	 * assegnate con {@link ASSIGNMENT_TYPE#LLOYD}.
+	 * 
+	 * @param assignment
+	 *            metodo di assegnazione
+	 */
+	public void setAssignment(ASSIGNMENT_TYPE assignment) {
+		this.assignment = assignment;
+	}
+
+	/**
+	 * Imposta la misura della distanza tra le tuple e i centroidi, per
+	 * impostazione predefinita {@link ManhattanDistance}.
+	 * 
+	 * @param metric
+	 *            misura della distanza
+	 */
+	public void setDistanceMetric(DistanceMetric metric) {
+		C.setDistanceMetric(metric);
+	}
+
+	/**
+	 * Imposta il destinatario dell'avanzamento dell'esecuzione, notificato al
+	 * termine di ogni iterazione. Il calcolo dell'inerzia richiede una scansione
+	 * aggiuntiva dei dati a ogni iterazione.
+	 * 
+	 * @param listener
+	 *            destinatario dell'avanzamento, null per non notificarlo
+	 */
+	public void setProgressListener(ProgressListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Imposta il token con cui annullare l'esecuzione da un altro thread. La
+	 * scadenza del token si aggiunge al tempo massimo di esecuzione,
+	 * {@link KMeansMiner#setTimeLimit(long)}: l'esecuzione si arresta al primo
+	 * dei due istanti.
+	 * 
+	 * @param token
+	 *            token da cui dipende l'annullamento, null per non annullarla
+	 */
+	public void setCancellationToken(CancellationToken token) {
+		this.token = token;
+	}
+
+	/**
+	 * Imposta il numero di tuple di ciascun mini-batch. Con un valore maggiore di
+	 * zero l'algoritmo viene eseguito in modalità mini-batch.
+	 * 
+	 * @param batchSize
+	 *            numero di tuple di ciascun mini-batch, 0 per usare tutti i dati a
+	 *            ogni iterazione
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Imposta il numero massimo di mini-batch elaborati in modalità mini-batch.
+	 * 
+	 * @param maxBatches
+	 *            numero massimo di mini-batch
+	 */
+	public void setMaxBatches(int maxBatches) {
+		this.maxBatches = maxBatches;
+	}
+
+	/**
+	 * Restituisce il numero di tuple di ciascun mini-batch.
+	 * 
+	 * @return numero di tuple di un mini-batch, 0 se la modalità mini-batch non è
+	 *         attiva
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Restituisce il numero massimo di mini-batch elaborati in modalità
+	 * mini-batch.
+	 * 
+	 * @return numero massimo di mini-batch
+	 */
+	public int getMaxBatches() {
+		return maxBatches;
+	}
+
+	/**
+	 * Imposta se, al termine della modalità mini-batch, tutte le tuple vengono
+	 * assegnate al centroide più vicino. Senza l'assegnazione finale, che richiede
+	 * una scansione completa dei dati, le tuple restano prive di cluster e il
+	 * numero di tuple di ciascun cluster è quello delle tuple dei mini-batch
+	 * assegnate al cluster.
+	 * 
+	 * @param finalAssignment
+	 *            true per assegnare tutte le tuple al termine
+	 */
+	public void setFinalAssignment(boolean finalAssignment) {
+		this.finalAssignment = finalAssignment;
+	}
+
+	/**
+	 * Imposta lo spostamento massimo dei centroidi al di sotto del quale
+	 * l'esecuzione termina: se dopo un'iterazione (un mini-batch in modalità
+	 * mini-batch) nessun centroide si è spostato più di shiftTolerance,
+	 * l'algoritmo si arresta.
+	 * 
+	 * @param shiftTolerance
+	 *            spostamento massimo dei centroidi
+	 */
+	public void setShiftTolerance(double shiftTolerance) {
+		this.shiftTolerance = shiftTolerance;
+	}
+
+	/**
+	 * Imposta il numero massimo di iterazioni eseguite su tutti i dati.
+	 * 
+	 * @param maxIterations
+	 *            numero massimo di iterazioni
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Imposta la frazione di tuple riassegnate al di sotto della quale l'esecuzione
+	 * termina: se in un'iterazione la frazione di tuple che hanno cambiato cluster
+	 * è minore di reassignmentTolerance, l'algoritmo si arresta.
+	 * 
+	 * @param reassignmentTolerance
+	 *            frazione di tuple riassegnate, tra 0 e 1
+	 */
+	public void setReassignmentTolerance(double reassignmentTolerance) {
+		this.reassignmentTolerance = reassignmentTolerance;
+	}
+
+	/**
+	 * Imposta il tempo massimo di esecuzione: superato tale tempo l'algoritmo si
+	 * arresta entro l'elaborazione del blocco di righe in corso, conservando i
+	 * centroidi calcolati fino a quel momento.
+	 * 
+	 * @param timeLimit
+	 *            tempo massimo in millisecondi, 0 per non porre limiti
+	 */
+	public void setTimeLimit(long timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Restituisce il criterio per cui è terminata l'ultima esecuzione
+	 * dell'algoritmo.
+	 * 
+	 * @return criterio di arresto, null se l'algoritmo non è stato eseguito
+	 */
+	public STOP_REASON getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Esegue l'algoritmo KMeans e restituisce il numero di iterazioni eseguite. Se
+	 * è stata impostata la dimensione dei mini-batch esegue l'algoritmo in
+	 * modalità mini-batch e restituisce il numero di mini-batch elaborati. Il
+	 * criterio per cui l'algoritmo si è arrestato è restituito da
+	 * {@link KMeansMiner#getStopReason()}.
+	 * 
+	 * Se l'esecuzione viene annullata o supera la scadenza, l'algoritmo si arresta
+	 * entro l'elaborazione del blocco di righe in corso e l'insieme di cluster
+	 * conserva i centroidi dell'ultimo ricalcolo completato; le tuple elaborate
+	 * nell'assegnazione interrotta sono assegnate al centroide più vicino, le
+	 * altre restano nel cluster precedente. Se l'arresto avviene durante la scelta
+	 * dei centroidi iniziali, l'insieme di cluster resta vuoto.
+	 * 
+	 * @param data
+	 *            dati su cui eseguire l'algoritmo
+	 * @return numero di iterazioni eseguite
+	 * @throws OutOfRangeSampleSizeException
+	 *             {@link ClusterSet#initializeCentroids(Data, CentroidInitializer, Random, ParallelExecutor)}
+	 */
+	public int kmeans(Data data) throws OutOfRangeSampleSizeException {
+		long start = System.currentTimeMillis();
+		long deadline = timeLimit > 0 ? start + timeLimit : Long.MAX_VALUE;
+		if (token != null)
+			deadline = Math.min(deadline, token.getDeadline());
+		ParallelExecutor executor = new ParallelExecutor(numberOfThreads, token, deadline);
+		stopReason = null;
+		if (batchSize > 0)
+			return miniBatchKmeans(data, start, deadline, executor);
+
+		int numberOfIterations = 0;
+		// I limiti di Hamerly richiedono la disuguaglianza triangolare
+		boolean hamerly = assignment == ASSIGNMENT_TYPE.HAMERLY && C.getDistanceMetric().satisfiesTriangleInequality();
+		LloydAssignment step = hamerly ? new HamerlyAssignment(data.getNumberOfTuples()) : new LloydAssignment();
+		try {
+			// STEP 1
+			C.initializeCentroids(data, getInitializer(), new Random(seed), executor);
+			do {
+				numberOfIterations++;
+				// STEP 2
+				int changedTuples = step.assignTuples(C, data, executor);
+				double inertia = listener != null ? C.computeInertia(data, executor) : 0;
+				// STEP 3
+				double shift = step.updateCentroids(C, data, executor);
+				if (listener != null)
+					listener.iterationCompleted(numberOfIterations, changedTuples, inertia,
+							System.currentTimeMillis() - start);
+
+				if (changedTuples == 0)
+					stopReason = STOP_REASON.CONVERGED;
+				else if ((double) changedTuples / data.getNumberOfTuples() < reassignmentTolerance)
+					stopReason = STOP_REASON.REASSIGNMENT_TOLERANCE;
+				else
+					stopReason = checkStop(numberOfIterations, maxIterations, shift, deadline);
+			} while (stopReason == null);
+		} catch (ExecutionStoppedException e) {
+			stopReason = e.getReason();
+			// Le dimensioni dei cluster devono corrispondere alle tuple assegnate
+			C.countTuples();
+		}
+		return numberOfIterations;
+	}
+
+	/**
+	 * Esegue l'algoritmo KMeans in modalità mini-batch e restituisce il numero di
+	 * mini-batch elaborati. A ogni passo estrae casualmente batchSize tuple,
+	 * {@link KMeansMiner#sampleRow(long, long, int)}, le
+	 * assegna al cluster più vicino e sposta ciascun centroide verso le tuple
+	 * assegnate con tasso di apprendimento 1/v, dove v è il numero di tuple
+	 * assegnate al cluster fino a quel momento: ogni centroide coincide quindi con
+	 * la media (per gli attributi discreti il valore più frequente) delle tuple
+	 * estratte che gli sono state assegnate. L'esecuzione termina quando nessun
+	 * centroide si sposta più di shiftTolerance, dopo maxBatches mini-batch o
+	 * superata la scadenza deadline; se è richiesta l'assegnazione finale,
+	 * {@link KMeansMiner#setFinalAssignment(boolean)}, le tuple vengono infine
+	 * assegnate ai centroidi trovati, anche se è stata superata la scadenza. Se
+	 * l'esecuzione viene annullata prima del termine dell'assegnazione finale, le
+	 * tuple non ancora elaborate restano prive di cluster.
+	 * 
+	 * I mini-batch sono estratti dalle tuple di data, che devono quindi essere in
+	 * memoria: per le tabelle che non vi entrano, data può essere un campione
+	 * della tabella, {@link Data#Data(String, String, int, int, Random)}.
+	 * 
+	 * @param data
+	 *            dati su cui eseguire l'algoritmo
+	 * @param start
+	 *            istante, in millisecondi, di inizio dell'esecuzione
+	 * @param deadline
+	 *            istante, in millisecondi, oltre il quale l'esecuzione si arresta
+	 * @param executor
+	 *            esecutore con cui suddividere le righe, arrestato da token e da
+	 *            deadline
+	 * @return numero di mini-batch elaborati
+	 * @throws OutOfRangeSampleSizeException
+	 *             {@link ClusterSet#initializeCentroids(Data, CentroidInitializer, Random, ParallelExecutor)}
+	 */
+	private int miniBatchKmeans(Data data, long start, long deadline, ParallelExecutor executor)
+			throws OutOfRangeSampleSizeException {
+		int numberOfBatches = 0;
+		Random random = new Random(seed);
+		try {
+			C.initializeCentroids(data, getInitializer(), random, executor);
+		} catch (ExecutionStoppedException e) {
+			stopReason = e.getReason();
+			return numberOfBatches;
+		}
+
+		CentroidAccumulator accumulator = new CentroidAccumulator(data, C.getNumberOfClusters());
+		DistanceKernel kernel = C.getDistanceKernel(data);
+		int[] batch = new int[batchSize];
+		int[] nearest = new int[batchSize];
+		long batchSeed = random.nextLong();
+		try {
+			do {
+				long first = (long) numberOfBatches * batchSize;
+				numberOfBatches++;
+				double inertia = 0;
+				for (double partial : executor.execute(batchSize, (from, to) -> {
+					double[] distances = new double[kernel.getNumberOfCenters()];
+					double sum = 0;
+					for (int i = from; i < to; i++) {
+						batch[i] = sampleRow(batchSeed, first + i, data.getNumberOfTuples());
+						nearest[i] = ClusterSet.nearestCluster(kernel, batch[i], distances);
+						sum += data.getWeight(batch[i]) * distances[nearest[i]];
+					}
+					return sum;
+				}))
+					inertia += partial;
+				for (int i = 0; i < batchSize; i++)
+					accumulator.add(batch[i], nearest[i]);
+				double shift = C.updateCentroids(accumulator);
+				kernel.updateCenters();
+				if (listener != null)
+					listener.iterationCompleted(numberOfBatches, -1, inertia, System.currentTimeMillis() - start);
+				stopReason = checkStop(numberOfBatches, maxBatches, shift, deadline);
+			} while (stopReason == null);
+		} catch (ExecutionStoppedException e) {
+			stopReason = e.getReason();
+		}
+
+		if (!finalAssignment)
+			return numberOfBatches;
+		try {
+			// L'assegnazione finale avviene anche oltre la scadenza
+			C.assignTuples(data, new ParallelExecutor(numberOfThreads, token, Long.MAX_VALUE));
+		} catch (ExecutionStoppedException e) {
+			stopReason = e.getReason();
+		}
+		C.countTuples();
+		return numberOfBatches;
+	}
+
+	/**
+	 * Restituisce l'indice della riga, tra numberOfTuples, estratta come
+	 * index-esima tupla dei mini-batch dell'esecuzione con seme seed. L'indice
+	 * dipende solo da seed e da index, così che le tuple di un mini-batch possano
+	 * essere estratte in parallelo, in qualunque ordine, con lo stesso risultato.
+	 * 
+	 * @param seed
+	 *            seme delle estrazioni dell'esecuzione
+	 * @param index
+	 *            posizione dell'estrazione nella sequenza dei mini-batch
+	 * @param numberOfTuples
+	 *            numero di tuple tra cui estrarre
+	 * @return indice della riga estratta
+	 */
+	static int sampleRow(long seed, long index, int numberOfTuples) {
+		// Funzione di mescolamento di SplitMix64
+		long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z ^= z >>> 31;
+		// I 31 bit più significativi, scalati senza divisioni in [0, numberOfTuples)
+		return (int) (((z >>> 33) * numberOfTuples) >>> 31);
+	}
+
+	/**
+	 * Verifica i criteri di arresto comuni alle due modalità di esecuzione al
+	 * termine di un'iterazione e restituisce il primo soddisfatto, null se
+	 * l'esecuzione deve proseguire.
+	 * 
+	 * @param numberOfIterations
+	 *            numero di iterazioni eseguite
+	 * @param maxIterations
+	 *            numero massimo di iterazioni
+	 * @param shift
+	 *            spostamento massimo dei centroidi nell'ultima iterazione
+	 * @param deadline
+	 *            istante, in millisecondi, oltre il quale l'esecuzione si arresta
+	 * @return criterio di arresto soddisfatto, null se nessuno
+	 */
+	private STOP_REASON checkStop(int numberOfIterations, int maxIterations, double shift, long deadline) {
+		if (shift <= shiftTolerance)
+			return STOP_REASON.SHIFT_TOLERANCE;
+		if (numberOfIterations >= maxIterations)
+			return STOP_REASON.MAX_ITERATIONS;
+		if (System.currentTimeMillis() >= deadline)
+			return STOP_REASON.DEADLINE;
+		return null;
+	}
+
+	/**
+	 * Restituisce la strategia di scelta dei centroidi corrispondente al metodo
+	 * impostato.
+	 * 
+	 * @return strategia di scelta dei centroidi
+	 */
+	private CentroidInitializer getInitializer() {
+		switch (initialization) {
+		case RANDOM:
+			return new RandomInitializer();
+		case KMEANS_PARALLEL:
+			return new KMeansParallelInitializer();
+		default:
+			return new KMeansPlusPlusInitializer();
+		}
+	}
+
+}
@@ -0,0 +1,239 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import data.Data;
+import data.DistanceMetric;
+import data.OutOfRangeSampleSizeException;
+import data.Tuple;
+
+/**
+ * Sceglie i centroidi iniziali con k-means||. Partendo da una tupla scelta in
+ * modo uniforme, esegue un numero ridotto di scansioni dei dati; in ciascuna
+ * ogni tupla viene scelta come candidata, indipendentemente dalle altre, con
+ * probabilità proporzionale al quadrato della sua distanza dai candidati già
+ * scelti. I candidati, pesati con il numero di tuple di cui sono i più vicini,
+ * vengono infine ridotti a k con k-means++. Se le tuple sono pesate, le
+ * probabilità e i pesi dei candidati tengono conto del peso delle tuple.
+ *
+ * Le estrazioni di ciascuna tupla dipendono solo dal generatore e dall'indice
+ * della tupla, quindi la scelta non dipende dal numero di thread impiegati.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class KMeansParallelInitializer implements CentroidInitializer {
+	// numero di scansioni dei dati in cui vengono estratti i candidati
+	private static final int ROUNDS = 5;
+	// numero atteso di candidati estratti in ciascuna scansione, in rapporto a k
+	private static final double OVERSAMPLING_FACTOR = 2.0;
+
+	@Override
+	public int[] chooseCentroids(Data data, int k, Random random, ParallelExecutor executor,
+			DistanceMetric metric) throws OutOfRangeSampleSizeException {
+		int numberOfTuples = data.getNumberOfTuples();
+		if (k <= 0 || k > numberOfTuples)
+			throw new OutOfRangeSampleSizeException();
+
+		double[] distances = new double[numberOfTuples];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		int[] nearest = new int[numberOfTuples];
+
+		List<Integer> candidates = new ArrayList<Integer>();
+		candidates.add(KMeansPlusPlusInitializer.sampleRow(data, random));
+		double cost = KMeansPlusPlusInitializer.updateDistances(data, new Tuple[] { data.getItemSet(candidates.get(0)) },
+				0, distances, nearest, executor, metric);
+
+		double oversampling = OVERSAMPLING_FACTOR * k;
+		for (int round = 0; round < ROUNDS && cost > 0; round++) {
+			long seed = random.nextLong();
+			double currentCost = cost;
+			List<List<Integer>> sampled = executor.execute(numberOfTuples, (from, to) -> {
+				List<Integer> rows = new ArrayList<Integer>();
+				for (int row = from; row < to; row++) {
+					if (uniform(seed, row) < oversampling * distances[row] / currentCost)
+						rows.add(row);
+				}
+				return rows;
+			});
+
+			// Scarta le tuple che coincidono con un candidato estratto nella stessa
+			// scansione; quelle che coincidono con i candidati delle scansioni precedenti
+			// hanno distanza nulla e non vengono estratte
+			int firstIndex = candidates.size();
+			List<Tuple> centers = new ArrayList<Tuple>();
+			for (List<Integer> rows : sampled) {
+				for (int row : rows) {
+					Tuple tuple = data.getItemSet(row);
+					if (!contains(centers, tuple, metric)) {
+						candidates.add(row);
+						centers.add(tuple);
+					}
+				}
+			}
+			cost = KMeansPlusPlusInitializer.updateDistances(data, centers.toArray(new Tuple[centers.size()]),
+					firstIndex, distances, nearest, executor, metric);
+		}
+
+		// Completa i candidati con k-means++ se le scansioni ne hanno estratti meno di
+		// k
+		while (candidates.size() < k) {
+			if (cost <= 0)
+				throw new OutOfRangeSampleSizeException();
+			int next = KMeansPlusPlusInitializer.sample(distances, cost, random);
+			candidates.add(next);
+			cost = KMeansPlusPlusInitializer.updateDistances(data, new Tuple[] { data.getItemSet(next) },
+					candidates.size() - 1, distances, nearest, executor, metric);
+		}
+
+		return reduce(data, candidates, weigh(data, nearest, candidates.size(), executor), k, random, metric);
+	}
+
+	/**
+	 * Verifica se tuple coincide, secondo metric, con una delle tuple di tuples.
+	 *
+	 * @param tuples
+	 *            tuple da confrontare
+	 * @param tuple
+	 *            tupla cercata
+	 * @param metric
+	 *            misura della distanza
+	 * @return true se tuple ha distanza nulla da una delle tuple
+	 */
+	private boolean contains(List<Tuple> tuples, Tuple tuple, DistanceMetric metric) {
+		for (Tuple other : tuples) {
+			if (other.getDistance(tuple, metric) == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Restituisce, per ciascun candidato, il peso complessivo delle tuple di cui è
+	 * il candidato più vicino.
+	 *
+	 * @param data
+	 *            dati da cui sono estratti i candidati
+	 * @param nearest
+	 *            indice del candidato più vicino a ciascuna tupla
+	 * @param numberOfCandidates
+	 *            numero di candidati
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @return pesi dei candidati
+	 */
+	private double[] weigh(Data data, int[] nearest, int numberOfCandidates, ParallelExecutor executor) {
+		List<double[]> partials = executor.execute(nearest.length, (from, to) -> {
+			double[] weights = new double[numberOfCandidates];
+			for (int row = from; row < to; row++)
+				weights[nearest[row]] += data.getWeight(row);
+			return weights;
+		});
+
+		double[] weights = partials.get(0);
+		for (int i = 1; i < partials.size(); i++) {
+			for (int c = 0; c < numberOfCandidates; c++)
+				weights[c] += partials.get(i)[c];
+		}
+		return weights;
+	}
+
+	/**
+	 * Riduce i candidati a k centroidi con k-means++, pesando ciascun candidato con
+	 * weights.
+	 *
+	 * @param data
+	 *            dati da cui sono estratti i candidati
+	 * @param candidates
+	 *            indici delle tuple candidate
+	 * @param weights
+	 *            pesi dei candidati
+	 * @param k
+	 *            numero di centroidi da scegliere
+	 * @param random
+	 *            generatore di numeri casuali
+	 * @param metric
+	 *            misura della distanza
+	 * @return indici delle tuple scelte
+	 * @throws OutOfRangeSampleSizeException
+	 *             se i candidati distinti sono meno di k
+	 */
+	private int[] reduce(Data data, List<Integer> candidates, double[] weights, int k, Random random,
+			DistanceMetric metric) throws OutOfRangeSampleSizeException {
+		int numberOfCandidates = candidates.size();
+		Tuple[] tuples = new Tuple[numberOfCandidates];
+		for (int c = 0; c < numberOfCandidates; c++)
+			tuples[c] = data.getItemSet(candidates.get(c));
+
+		int[] centroidIndexes = new int[k];
+		double[] distances = new double[numberOfCandidates];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		double[] scores = new double[numberOfCandidates];
+
+		double totalWeight = 0;
+		for (double weight : weights)
+			totalWeight += weight;
+		int chosen = KMeansPlusPlusInitializer.sample(weights, totalWeight, random);
+		for (int i = 0; i < k; i++) {
+			if (i > 0) {
+				double total = 0;
+				for (int c = 0; c < numberOfCandidates; c++) {
+					scores[c] = weights[c] * distances[c];
+					total += scores[c];
+				}
+				// I candidati rimasti hanno peso nullo o coincidono con quelli già scelti
+				chosen = total > 0 ? KMeansPlusPlusInitializer.sample(scores, total, random) : firstUnused(distances);
+			}
+			centroidIndexes[i] = candidates.get(chosen);
+
+			for (int c = 0; c < numberOfCandidates; c++) {
+				double distance = tuples[chosen].getDistance(tuples[c], metric);
+				distances[c] = Math.min(distances[c], distance * distance);
+			}
+			distances[chosen] = 0;
+		}
+
+		return centroidIndexes;
+	}
+
+	/**
+	 * Restituisce l'indice del primo candidato non ancora scelto, ossia con
+	 * distanza non nulla dai centroidi scelti.
+	 *
+	 * @param distances
+	 *            quadrato della distanza di ciascun candidato dal centroide più
+	 *            vicino
+	 * @return indice del candidato
+	 * @throws OutOfRangeSampleSizeException
+	 *             se tutti i candidati coincidono con i centroidi scelti
+	 */
+	private int firstUnused(double[] distances) throws OutOfRangeSampleSizeException {
+		for (int c = 0; c < distances.length; c++) {
+			if (distances[c] > 0)
+				return c;
+		}
+		throw new OutOfRangeSampleSizeException();
+	}
+
+	/**
+	 * Restituisce un numero pseudo-casuale in [0, 1) che dipende solo da seed e da
+	 * row.
+	 *
+	 * @param seed
+	 *            seme della scansione
+	 * @param row
+	 *            indice della tupla
+	 * @return numero pseudo-casuale
+	 */
+	private static double uniform(long seed, int row) {
+		// SplitMix64
+		long z = seed + (row + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (z >>> 11) * 0x1.0p-53;
+	}
+}
@@ -0,0 +1,154 @@
+package mining;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import data.Data;
+import data.DistanceMetric;
+import data.DistanceKernel;
+import data.OutOfRangeSampleSizeException;
+import data.Tuple;
+
+/**
+ * Sceglie i centroidi iniziali con k-means++: il primo centroide è una tupla
+ * scelta in modo uniforme, ciascuno dei successivi è estratto con probabilità
+ * proporzionale al quadrato della distanza della tupla dal centroide già scelto
+ * più vicino. Se le tuple sono pesate, entrambe le probabilità sono
+ * moltiplicate per il peso della tupla.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class KMeansPlusPlusInitializer implements CentroidInitializer {
+
+	@Override
+	public int[] chooseCentroids(Data data, int k, Random random, ParallelExecutor executor,
+			DistanceMetric metric) throws OutOfRangeSampleSizeException {
+		int numberOfTuples = data.getNumberOfTuples();
+		if (k <= 0 || k > numberOfTuples)
+			throw new OutOfRangeSampleSizeException();
+
+		int[] centroidIndexes = new int[k];
+		double[] distances = new double[numberOfTuples];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+		centroidIndexes[0] = sampleRow(data, random);
+		for (int i = 1; i < k; i++) {
+			Tuple[] last = { data.getItemSet(centroidIndexes[i - 1]) };
+			double total = updateDistances(data, last, 0, distances, null, executor, metric);
+			// Tutte le tuple coincidono con un centroide già scelto
+			if (total <= 0)
+				throw new OutOfRangeSampleSizeException();
+			centroidIndexes[i] = sample(distances, total, random);
+		}
+
+		return centroidIndexes;
+	}
+
+	/**
+	 * Estrae una tupla di data con probabilità proporzionale al suo peso.
+	 * 
+	 * @param data
+	 *            dati da cui estrarre la tupla
+	 * @param random
+	 *            generatore di numeri casuali
+	 * @return indice della tupla estratta
+	 */
+	static int sampleRow(Data data, Random random) {
+		int numberOfTuples = data.getNumberOfTuples();
+		if (!data.isWeighted())
+			return random.nextInt(numberOfTuples);
+		double[] weights = new double[numberOfTuples];
+		for (int row = 0; row < numberOfTuples; row++)
+			weights[row] = data.getWeight(row);
+		return sample(weights, data.getTotalWeight(), random);
+	}
+
+	/**
+	 * Aggiorna, per ogni tupla di data, il quadrato della distanza dal centroide
+	 * più vicino tenendo conto dei nuovi centroidi centers, moltiplicato per il
+	 * peso della tupla. Se nearest non è null, vi registra per ogni tupla l'indice
+	 * del centroide più vicino, numerando i nuovi centroidi a partire da
+	 * firstIndex. Restituisce la somma dei quadrati pesati delle distanze
+	 * aggiornate.
+	 *
+	 * @param data
+	 *            dati da cui calcolare le distanze
+	 * @param centers
+	 *            nuovi centroidi
+	 * @param firstIndex
+	 *            indice del primo dei nuovi centroidi
+	 * @param distances
+	 *            quadrato della distanza di ciascuna tupla dal centroide più
+	 *            vicino, moltiplicato per il peso della tupla
+	 * @param nearest
+	 *            indice del centroide più vicino a ciascuna tupla, oppure null
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @param metric
+	 *            misura della distanza
+	 * @return somma dei quadrati pesati delle distanze
+	 * @throws ExecutionStoppedException
+	 *             {@link ParallelExecutor#checkpoint()}
+	 */
+	static double updateDistances(Data data, Tuple[] centers, int firstIndex, double[] distances, int[] nearest,
+			ParallelExecutor executor, DistanceMetric metric) {
+		DistanceKernel kernel = new DistanceKernel(data, centers, metric);
+		List<Double> partials = executor.execute(data.getNumberOfTuples(), (from, to) -> {
+			double total = 0;
+			double[] block = new double[DistanceKernel.BLOCK_SIZE * centers.length];
+			for (int start = from; start < to; start += DistanceKernel.BLOCK_SIZE) {
+				executor.checkpoint();
+				int end = Math.min(start + DistanceKernel.BLOCK_SIZE, to);
+				kernel.distances(start, end, block);
+				for (int row = start; row < end; row++) {
+					double weight = data.getWeight(row);
+					for (int c = 0; c < centers.length; c++) {
+						double distance = block[c * (end - start) + row - start];
+						distance *= distance * weight;
+						if (distance < distances[row]) {
+							distances[row] = distance;
+							if (nearest != null)
+								nearest[row] = firstIndex + c;
+						}
+					}
+					total += distances[row];
+				}
+			}
+			return total;
+		});
+
+		double total = 0;
+		for (double partial : partials)
+			total += partial;
+		return total;
+	}
+
+	/**
+	 * Estrae un indice con probabilità proporzionale al suo peso in weights.
+	 *
+	 * @param weights
+	 *            pesi non negativi
+	 * @param total
+	 *            somma dei pesi, maggiore di zero
+	 * @param random
+	 *            generatore di numeri casuali
+	 * @return indice estratto
+	 */
+	static int sample(double[] weights, double total, Random random) {
+		double target = random.nextDouble() * total;
+		double cumulative = 0;
+		int last = -1;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] > 0) {
+				cumulative += weights[i];
+				last = i;
+				if (cumulative > target)
+					return i;
+			}
+		}
+		// Possibile solo per errori di arrotondamento sulla somma
+		return last;
+	}
+}
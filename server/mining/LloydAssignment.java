@@ -0,0 +1,46 @@
+package mining;
+
+import data.Data;
+
+/**
+ * Questa classe implementa i passi di un'iterazione dell'algoritmo KMeans:
+ * l'assegnazione di ogni tupla al cluster più vicino, calcolandone la distanza
+ * da tutti i centroidi, e il ricalcolo dei centroidi.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+class LloydAssignment {
+
+	/**
+	 * Assegna ciascuna tupla di data al cluster più vicino dell'insieme clusters.
+	 * Restituisce il numero di tuple che hanno cambiato cluster.
+	 * 
+	 * @param clusters
+	 *            insieme di cluster
+	 * @param data
+	 *            dati da clusterizzare
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @return numero di tuple che hanno cambiato cluster
+	 */
+	int assignTuples(ClusterSet clusters, Data data, ParallelExecutor executor) {
+		return clusters.assignTuples(data, executor);
+	}
+
+	/**
+	 * Ricalcola i centroidi dei cluster dell'insieme clusters e restituisce lo
+	 * spostamento massimo dei centroidi.
+	 * 
+	 * @param clusters
+	 *            insieme di cluster
+	 * @param data
+	 *            dati clusterizzati
+	 * @param executor
+	 *            esecutore con cui suddividere le righe
+	 * @return spostamento massimo dei centroidi
+	 */
+	double updateCentroids(ClusterSet clusters, Data data, ParallelExecutor executor) {
+		return clusters.updateCentroids(data, executor);
+	}
+}
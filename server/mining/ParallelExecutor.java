@@ -0,0 +1,161 @@
+package mining;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Questa classe esegue un'elaborazione sulle righe di un insieme di dati
+ * suddividendole in intervalli contigui, uno per ciascun thread richiesto. Gli
+ * intervalli sono elaborati dai thread di un unico pool condiviso da tutte le
+ * esecuzioni del server, così che il numero complessivo di thread impiegati nel
+ * clustering resti limitato.
+ *
+ * La suddivisione dipende solo dal numero di righe e dal numero di intervalli:
+ * a parità di thread richiesti i risultati parziali vengono restituiti e
+ * combinati sempre nello stesso ordine.
+ *
+ * Le elaborazioni invocano {@link ParallelExecutor#checkpoint()} a ogni blocco
+ * di righe, così che l'esecuzione si arresti poco dopo l'annullamento del
+ * {@link CancellationToken} o il superamento della scadenza.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class ParallelExecutor {
+
+	/**
+	 * Numero massimo di thread che il server impiega per il clustering,
+	 * configurabile tramite la proprietà di sistema kmeans.maxThreads.
+	 */
+	static final int MAX_THREADS = Math.max(1,
+			Integer.getInteger("kmeans.maxThreads", Runtime.getRuntime().availableProcessors()));
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(MAX_THREADS);
+
+	/**
+	 * Elaborazione da eseguire su un intervallo di righe.
+	 *
+	 * @param <T>
+	 *            tipo del risultato parziale
+	 */
+	interface RangeTask<T> {
+		/**
+		 * Elabora le righe con indice compreso tra from (incluso) e to (escluso).
+		 *
+		 * @param from
+		 *            prima riga da elaborare
+		 * @param to
+		 *            riga successiva all'ultima da elaborare
+		 * @return risultato parziale dell'intervallo
+		 */
+		T compute(int from, int to);
+	}
+
+	private int numberOfPartitions;
+	// token da cui dipende l'annullamento delle elaborazioni, oppure null
+	private CancellationToken token;
+	// istante, in millisecondi, oltre il quale le elaborazioni si arrestano
+	private long deadline;
+
+	/**
+	 * Istanzia l'oggetto per eseguire le elaborazioni con numberOfThreads thread,
+	 * limitati a {@link ParallelExecutor#MAX_THREADS}.
+	 *
+	 * @param numberOfThreads
+	 *            numero di thread richiesti
+	 */
+	ParallelExecutor(int numberOfThreads) {
+		this(numberOfThreads, null, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Istanzia l'oggetto per eseguire le elaborazioni con numberOfThreads thread,
+	 * limitati a {@link ParallelExecutor#MAX_THREADS}, arrestandole se token viene
+	 * annullato o se viene superata la scadenza deadline.
+	 *
+	 * @param numberOfThreads
+	 *            numero di thread richiesti
+	 * @param token
+	 *            token da cui dipende l'annullamento, oppure null
+	 * @param deadline
+	 *            istante, in millisecondi, oltre il quale le elaborazioni si
+	 *            arrestano
+	 */
+	ParallelExecutor(int numberOfThreads, CancellationToken token, long deadline) {
+		numberOfPartitions = Math.max(1, Math.min(numberOfThreads, MAX_THREADS));
+		this.token = token;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Restituisce il numero di intervalli in cui vengono suddivise le righe.
+	 *
+	 * @return numero di intervalli
+	 */
+	int getNumberOfPartitions() {
+		return numberOfPartitions;
+	}
+
+	/**
+	 * Verifica se l'esecuzione deve arrestarsi. Va invocato dalle elaborazioni a
+	 * ogni blocco di righe.
+	 *
+	 * @throws ExecutionStoppedException
+	 *             se il token è stato annullato o la scadenza è stata superata
+	 */
+	void checkpoint() {
+		if (token != null && token.isCancelled())
+			throw new ExecutionStoppedException(STOP_REASON.CANCELLED);
+		if (deadline != Long.MAX_VALUE && System.currentTimeMillis() >= deadline)
+			throw new ExecutionStoppedException(STOP_REASON.DEADLINE);
+	}
+
+	/**
+	 * Suddivide le righe da 0 a numberOfRows in intervalli contigui ed esegue task
+	 * su ciascuno di essi. Con un solo intervallo l'elaborazione avviene sul thread
+	 * chiamante. Prima di avviare l'elaborazione verifica se l'esecuzione deve
+	 * arrestarsi, {@link ParallelExecutor#checkpoint()}.
+	 *
+	 * @param numberOfRows
+	 *            numero di righe da elaborare
+	 * @param task
+	 *            elaborazione da eseguire
+	 * @param <T>
+	 *            tipo dei risultati parziali
+	 * @return risultati parziali, nell'ordine degli intervalli
+	 * @throws ExecutionStoppedException
+	 *             se l'esecuzione si è arrestata prima o durante l'elaborazione
+	 */
+	<T> List<T> execute(int numberOfRows, RangeTask<T> task) {
+		checkpoint();
+		List<T> results = new ArrayList<T>(numberOfPartitions);
+		if (numberOfPartitions == 1) {
+			results.add(task.compute(0, numberOfRows));
+			return results;
+		}
+
+		List<Callable<T>> tasks = new ArrayList<Callable<T>>(numberOfPartitions);
+		for (int i = 0; i < numberOfPartitions; i++) {
+			int from = (int) ((long) numberOfRows * i / numberOfPartitions);
+			int to = (int) ((long) numberOfRows * (i + 1) / numberOfPartitions);
+			tasks.add(() -> task.compute(from, to));
+		}
+
+		try {
+			for (Future<T> result : POOL.invokeAll(tasks))
+				results.add(result.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Parallel execution interrupted.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ExecutionStoppedException)
+				throw (ExecutionStoppedException) e.getCause();
+			throw new IllegalStateException("Parallel execution error: " + e.getCause().getMessage(), e.getCause());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,31 @@
+package mining;
+
+/**
+ * Riceve l'avanzamento dell'esecuzione dell'algoritmo KMeans al termine di
+ * ciascuna iterazione, {@link KMeansMiner#setProgressListener(ProgressListener)}.
+ * I metodi sono invocati dal thread che esegue l'algoritmo e ne rallentano
+ * l'esecuzione, quindi devono terminare rapidamente.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public interface ProgressListener {
+
+	/**
+	 * Notifica il termine di un'iterazione (di un mini-batch in modalità
+	 * mini-batch).
+	 * 
+	 * @param iteration
+	 *            numero dell'iterazione, a partire da 1
+	 * @param reassignedTuples
+	 *            numero di tuple che hanno cambiato cluster nell'iterazione, -1 in
+	 *            modalità mini-batch
+	 * @param inertia
+	 *            somma delle distanze, pesate con il peso delle tuple, di ciascuna
+	 *            tupla assegnata dal centroide del suo cluster; in modalità
+	 *            mini-batch è calcolata sulle sole tuple del mini-batch
+	 * @param elapsedTime
+	 *            millisecondi trascorsi dall'inizio dell'esecuzione
+	 */
+	void iterationCompleted(int iteration, int reassignedTuples, double inertia, long elapsedTime);
+}
@@ -0,0 +1,22 @@
+package mining;
+
+import java.util.Random;
+
+import data.Data;
+import data.DistanceMetric;
+import data.OutOfRangeSampleSizeException;
+
+/**
+ * Sceglie i centroidi iniziali estraendo k tuple distinte in modo uniforme.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+class RandomInitializer implements CentroidInitializer {
+
+	@Override
+	public int[] chooseCentroids(Data data, int k, Random random, ParallelExecutor executor,
+			DistanceMetric metric) throws OutOfRangeSampleSizeException {
+		return data.sampling(k, random);
+	}
+}
@@ -0,0 +1,35 @@
+package mining;
+
+/**
+ * Criteri per cui l'esecuzione dell'algoritmo KMeans può terminare.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public enum STOP_REASON {
+	/**
+	 * Nessuna tupla ha cambiato cluster.
+	 */
+	CONVERGED,
+	/**
+	 * La frazione di tuple che hanno cambiato cluster è inferiore alla soglia.
+	 */
+	REASSIGNMENT_TOLERANCE,
+	/**
+	 * Nessun centroide si è spostato più della soglia.
+	 */
+	SHIFT_TOLERANCE,
+	/**
+	 * È stato raggiunto il numero massimo di iterazioni (di mini-batch in modalità
+	 * mini-batch).
+	 */
+	MAX_ITERATIONS,
+	/**
+	 * È stato superato il tempo massimo di esecuzione.
+	 */
+	DEADLINE,
+	/**
+	 * L'esecuzione è stata annullata, {@link CancellationToken#cancel()}.
+	 */
+	CANCELLED
+}
@@ -0,0 +1,218 @@
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Formato binario compatto, con versione. Il client apre la sessione inviando
+ * i byte 'K' 'M' seguiti dalla versione del formato su due byte; il server
+ * risponde con gli stessi due byte seguiti dalla versione che userà, la minore
+ * tra quella del client e {@link BinaryProtocol#VERSION}.
+ *
+ * Ogni richiesta e ogni risposta è un frame: la lunghezza in byte del contenuto
+ * su quattro byte, seguita dal contenuto. I numeri sono scritti in big-endian e
+ * le stringhe come in {@link DataOutputStream#writeUTF(String)}.
+ * <ul>
+ * <li>Il contenuto di una richiesta è il codice del comando su un byte (QUIT 0,
+ * DB 1, FILE 2, SUBMIT 3, STATUS 4, WATCH 5, CANCEL 6, RESULT 7) seguito dagli
+ * argomenti, nello stesso ordine del formato a oggetti; DB riceve le opzioni,
+ * come il comando DBX del formato a oggetti.</li>
+ * <li>Il contenuto di una risposta è il tipo su un byte seguito dai dati: END
+ * (0) conclude la risposta, TEXT (1) ed ERROR (2) contengono una stringa,
+ * RESULT (3) l'esito di un clustering: il numero di iterazioni (-1 per i
+ * cluster caricati da file), il criterio di arresto (stringa vuota per i cluster
+ * caricati da file), il nome del file, un byte che vale 1 se il salvataggio è
+ * fallito seguito in tal caso dal messaggio d'errore e infine i cluster,
+ * {@link mining.ClusterSet#write(java.io.DataOutput, data.Data)}.</li>
+ * </ul>
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class BinaryProtocol extends Protocol {
+	/**
+	 * Versione più recente del formato supportata dal server.
+	 */
+	static final int VERSION = 1;
+
+	// lunghezza massima del contenuto di una richiesta
+	private static final int MAX_FRAME = 1 << 16;
+	private static final byte MAGIC_0 = 'K';
+	private static final byte MAGIC_1 = 'M';
+	// nomi dei comandi, nell'ordine dei codici; il clustering da database riceve
+	// sempre le opzioni
+	private static final String[] COMMANDS = { "QUIT", "DBX", "FILE", "SUBMIT", "STATUS", "WATCH", "CANCEL",
+			"RESULT" };
+
+	private static final byte END = 0;
+	private static final byte TEXT = 1;
+	private static final byte ERROR = 2;
+	private static final byte RESULT = 3;
+
+	private DataInputStream in;
+	private DataOutputStream out;
+	// contenuto della richiesta in lettura
+	private DataInputStream request;
+	// contenuto della risposta in scrittura
+	private ByteArrayOutputStream frame = new ByteArrayOutputStream();
+	private DataOutputStream response = new DataOutputStream(frame);
+
+	/**
+	 * Legge l'intestazione del client, a cui {@link MultiServer} ha già risposto.
+	 *
+	 * @param in
+	 *            stream di input, posizionato all'inizio dell'intestazione del
+	 *            client
+	 * @param out
+	 *            stream di output, su cui è già stata inviata l'intestazione del
+	 *            server
+	 * @throws IOException
+	 *             se l'intestazione non può essere letta
+	 */
+	BinaryProtocol(InputStream in, OutputStream out) throws IOException {
+		this.in = new DataInputStream(in);
+		this.out = new DataOutputStream(out);
+		this.in.readFully(new byte[HEADER_LENGTH]);
+	}
+
+	/**
+	 * Verifica se header è l'intestazione del formato binario con una versione
+	 * valida.
+	 *
+	 * @param header
+	 *            primi byte ricevuti dal client
+	 * @return true se il client usa il formato binario
+	 */
+	static boolean matches(byte[] header) {
+		return header[0] == MAGIC_0 && header[1] == MAGIC_1 && version(header) > 0;
+	}
+
+	/**
+	 * Restituisce l'intestazione con cui il server risponde all'intestazione
+	 * header del client.
+	 *
+	 * @param header
+	 *            intestazione del client
+	 * @return intestazione del server, con la versione che verrà usata
+	 */
+	static byte[] header(byte[] header) {
+		int version = Math.min(version(header), VERSION);
+		return new byte[] { MAGIC_0, MAGIC_1, (byte) (version >> 8), (byte) version };
+	}
+
+	private static int version(byte[] header) {
+		return (header[2] & 0xFF) << 8 | header[3] & 0xFF;
+	}
+
+	/**
+	 * Legge il frame della richiesta successiva e ne restituisce il comando.
+	 *
+	 * @throws IOException
+	 *             se il frame supera la lunghezza massima o il comando è
+	 *             sconosciuto
+	 */
+	@Override
+	String readCommand() throws IOException {
+		int length = in.readInt();
+		if (length <= 0 || length > MAX_FRAME)
+			throw new IOException("Invalid frame length: " + length);
+		byte[] content = new byte[length];
+		in.readFully(content);
+		request = new DataInputStream(new ByteArrayInputStream(content));
+		int command = request.readUnsignedByte();
+		if (command >= COMMANDS.length)
+			throw new IOException("Unknown command: " + command);
+		return COMMANDS[command];
+	}
+
+	@Override
+	String readString() throws IOException {
+		return request.readUTF();
+	}
+
+	@Override
+	int readInt() throws IOException {
+		return request.readInt();
+	}
+
+	/**
+	 * Non invia nulla: l'esito della richiesta segue direttamente.
+	 */
+	@Override
+	void writeAccepted() {
+	}
+
+	@Override
+	void writeMessage(String message) throws IOException {
+		response.writeByte(TEXT);
+		response.writeUTF(message);
+		writeFrame();
+	}
+
+	@Override
+	void writeError(String message) throws IOException {
+		response.writeByte(ERROR);
+		response.writeUTF(message);
+		writeFrame();
+	}
+
+	/**
+	 * Invia l'esito come frame RESULT, oppure come frame ERROR se la richiesta non
+	 * è stata eseguita.
+	 */
+	@Override
+	void writeResult(ClusteringResult result) throws IOException {
+		if (result.getError() != null) {
+			writeError(result.getError());
+			return;
+		}
+		response.writeByte(RESULT);
+		response.writeInt(result.getIterations());
+		response.writeUTF(result.getStopReason() == null ? "" : result.getStopReason().name());
+		response.writeUTF(result.getFileName());
+		if (result.getSaveError() == null) {
+			response.writeByte(0);
+		} else {
+			response.writeByte(1);
+			response.writeUTF(result.getSaveError());
+		}
+		result.getClusters().write(response, result.getData());
+		writeFrame();
+	}
+
+	@Override
+	void writeEnd() throws IOException {
+		response.writeByte(END);
+		writeFrame();
+	}
+
+	/**
+	 * Scarta il frame della risposta eventualmente rimasto incompleto, prima di
+	 * inviare l'errore.
+	 */
+	@Override
+	void writeAbort(String message) throws IOException {
+		frame.reset();
+		super.writeAbort(message);
+	}
+
+	@Override
+	void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Scrive sullo stream di output il frame della risposta in costruzione,
+	 * preceduto dalla sua lunghezza.
+	 */
+	private void writeFrame() throws IOException {
+		out.writeInt(frame.size());
+		frame.writeTo(out);
+		frame.reset();
+	}
+}
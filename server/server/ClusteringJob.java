@@ -0,0 +1,131 @@
+package server;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Random;
+
+import data.Data;
+import data.OutOfRangeSampleSizeException;
+import database.DbAccess;
+import database.EmptySetException;
+import database.TableData;
+import mining.CancellationToken;
+import mining.KMeansMiner;
+import mining.ProgressListener;
+
+/**
+ * Questa classe rappresenta una richiesta di clustering da database: la
+ * tabella, il numero di cluster, il file in cui salvarli e le opzioni
+ * dell'esecuzione. La richiesta può essere eseguita dal thread della
+ * connessione che l'ha ricevuta oppure, in modo asincrono, da
+ * {@link JobManager}.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class ClusteringJob {
+	private String tableName;
+	private int numberOfClusters;
+	private String fileName;
+	private MiningOptions options;
+
+	/**
+	 * Istanzia la richiesta, analizzando il testo delle opzioni.
+	 *
+	 * @param tableName
+	 *            nome della tabella in cui cercare i cluster
+	 * @param numberOfClusters
+	 *            numero di cluster cercati
+	 * @param fileName
+	 *            nome del file in cui salvare i cluster
+	 * @param options
+	 *            opzioni facoltative dell'esecuzione, {@link MiningOptions}
+	 * @throws InvalidOptionException
+	 *             {@link MiningOptions#MiningOptions(String)}
+	 */
+	ClusteringJob(String tableName, int numberOfClusters, String fileName, String options)
+			throws InvalidOptionException {
+		this.tableName = tableName;
+		this.numberOfClusters = numberOfClusters;
+		this.fileName = fileName;
+		this.options = new MiningOptions(options);
+		// Segnala subito le opzioni non valide
+		this.options.configure(new KMeansMiner(numberOfClusters));
+	}
+
+	/**
+	 * Restituisce il nome della tabella in cui cercare i cluster.
+	 *
+	 * @return nome della tabella
+	 */
+	String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Restituisce il numero di cluster cercati.
+	 *
+	 * @return numero di cluster
+	 */
+	int getNumberOfClusters() {
+		return numberOfClusters;
+	}
+
+	/**
+	 * Esegue il processo di clustering da database e ne restituisce l'esito: il
+	 * numero di iterazioni e il criterio di arresto, i cluster trovati e l'esito
+	 * del salvataggio, oppure il messaggio d'errore che ha impedito l'esecuzione.
+	 * Se token viene annullato o scade durante l'esecuzione, l'esito riporta i
+	 * cluster calcolati fino a quel momento.
+	 *
+	 * @param datasets
+	 *            cache dei dati caricati dal database
+	 * @param listener
+	 *            destinatario dell'avanzamento dell'esecuzione, oppure null
+	 * @param token
+	 *            token con cui arrestare l'esecuzione, oppure null
+	 * @return esito della richiesta
+	 */
+	ClusteringResult execute(DatasetCache datasets, ProgressListener listener, CancellationToken token) {
+		KMeansMiner kmeans = new KMeansMiner(numberOfClusters);
+		kmeans.setProgressListener(listener);
+		kmeans.setCancellationToken(token);
+
+		Data data;
+		try {
+			options.configure(kmeans);
+			int sampleSize = options.getSampleSize(kmeans);
+			// Il campione dipende dal seme e non viene conservato nella cache
+			if (sampleSize > 0)
+				data = new Data(tableName, options.getWeightColumn(), TableData.DEFAULT_FETCH_SIZE, sampleSize,
+						new Random(kmeans.getSeed()));
+			else
+				data = datasets.get(tableName, options.getWeightColumn());
+			options.checkAttributes(data);
+		} catch (InvalidOptionException | SQLException | EmptySetException e) {
+			System.out.println(e.getMessage());
+			return new ClusteringResult(e.getMessage());
+		}
+		System.out.println("Connection pool: " + DbAccess.getPoolStatistics());
+		System.out.println("Dataset cache: " + datasets);
+
+		try {
+			int numIter = kmeans.kmeans(data);
+			String saveError = null;
+			try {
+				kmeans.save(fileName);
+			} catch (FileNotFoundException e) {
+				System.out.println(e.getMessage());
+				saveError = e.getMessage();
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+				saveError = e.getMessage();
+			}
+			return new ClusteringResult(numIter, kmeans.getStopReason(), kmeans.getC(), data, fileName, saveError);
+		} catch (OutOfRangeSampleSizeException e) {
+			System.out.println(e.getMessage());
+			return new ClusteringResult(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import data.Data;
+import mining.ClusterSet;
+import mining.STOP_REASON;
+
+/**
+ * Questa classe rappresenta l'esito di una richiesta di clustering: i cluster
+ * calcolati da database, con il numero di iterazioni, il criterio di arresto e
+ * l'esito del salvataggio, i cluster caricati da file, oppure il messaggio
+ * d'errore che ha impedito la richiesta. L'esito viene inviato al client da
+ * {@link Protocol#writeResult(ClusteringResult)}, come messaggi di testo o in
+ * forma strutturata.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class ClusteringResult {
+	// numero di iterazioni, -1 per i cluster caricati da file
+	private int iterations;
+	private STOP_REASON stopReason;
+	private ClusterSet clusters;
+	// dati clusterizzati, null per i cluster caricati da file
+	private Data data;
+	// file in cui sono stati salvati o da cui sono stati caricati i cluster
+	private String fileName;
+	// messaggio d'errore del salvataggio, null se riuscito
+	private String saveError;
+	// messaggio d'errore della richiesta, null se eseguita
+	private String error;
+
+	/**
+	 * Istanzia l'esito di un clustering da database.
+	 *
+	 * @param iterations
+	 *            numero di iterazioni eseguite
+	 * @param stopReason
+	 *            criterio di arresto
+	 * @param clusters
+	 *            cluster calcolati
+	 * @param data
+	 *            dati clusterizzati
+	 * @param fileName
+	 *            file in cui sono stati salvati i cluster
+	 * @param saveError
+	 *            messaggio d'errore del salvataggio, null se riuscito
+	 */
+	ClusteringResult(int iterations, STOP_REASON stopReason, ClusterSet clusters, Data data, String fileName,
+			String saveError) {
+		this.iterations = iterations;
+		this.stopReason = stopReason;
+		this.clusters = clusters;
+		this.data = data;
+		this.fileName = fileName;
+		this.saveError = saveError;
+	}
+
+	/**
+	 * Istanzia l'esito del caricamento dei cluster dal file fileName.
+	 *
+	 * @param clusters
+	 *            cluster caricati
+	 * @param fileName
+	 *            file da cui sono stati caricati i cluster
+	 */
+	ClusteringResult(ClusterSet clusters, String fileName) {
+		this(-1, null, clusters, null, fileName, null);
+	}
+
+	/**
+	 * Istanzia l'esito di una richiesta non eseguita a causa dell'errore error.
+	 *
+	 * @param error
+	 *            messaggio d'errore
+	 */
+	ClusteringResult(String error) {
+		this.error = error;
+	}
+
+	/**
+	 * Restituisce il numero di iterazioni eseguite.
+	 *
+	 * @return numero di iterazioni, -1 per i cluster caricati da file
+	 */
+	int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Restituisce il criterio di arresto.
+	 *
+	 * @return criterio di arresto, null per i cluster caricati da file
+	 */
+	STOP_REASON getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Restituisce i cluster.
+	 *
+	 * @return cluster calcolati o caricati, null in caso di errore
+	 */
+	ClusterSet getClusters() {
+		return clusters;
+	}
+
+	/**
+	 * Restituisce i dati clusterizzati.
+	 *
+	 * @return dati clusterizzati, null per i cluster caricati da file
+	 */
+	Data getData() {
+		return data;
+	}
+
+	/**
+	 * Restituisce il file in cui sono stati salvati o da cui sono stati caricati i
+	 * cluster.
+	 *
+	 * @return nome del file
+	 */
+	String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Restituisce il messaggio d'errore del salvataggio.
+	 *
+	 * @return messaggio d'errore, null se il salvataggio è riuscito
+	 */
+	String getSaveError() {
+		return saveError;
+	}
+
+	/**
+	 * Restituisce il messaggio d'errore della richiesta.
+	 *
+	 * @return messaggio d'errore, null se la richiesta è stata eseguita
+	 */
+	String getError() {
+		return error;
+	}
+
+	/**
+	 * Restituisce i messaggi di testo con cui l'esito viene inviato ai client che
+	 * usano gli stream di oggetti: il numero di iterazioni e il criterio di
+	 * arresto, i cluster e l'esito del salvataggio, oppure il messaggio d'errore.
+	 *
+	 * @return messaggi da inviare al client
+	 */
+	List<String> toMessages() {
+		List<String> messages = new ArrayList<String>();
+		if (error != null) {
+			messages.add(error);
+		} else if (data == null) {
+			messages.add(clusters.toString());
+		} else {
+			messages.add("Numero di iterazioni: " + iterations + "\nCriterio di arresto: " + stopReason + "\n");
+			messages.add(clusters.toString(data));
+			messages.add("Salvataggio in " + fileName);
+			if (saveError != null)
+				messages.add(saveError);
+		}
+		return messages;
+	}
+}
@@ -0,0 +1,306 @@
+package server;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import data.Data;
+import database.EmptySetException;
+import database.TableData;
+
+/**
+ * Questa classe conserva i dati caricati dalle tabelle del database, così che
+ * le richieste di clustering sulla stessa tabella non debbano ricaricarla. La
+ * cache è condivisa da tutti i thread del server: se più richieste chiedono
+ * contemporaneamente una tabella non ancora caricata, la tabella viene caricata
+ * una sola volta.
+ *
+ * La memoria occupata dai dati conservati è limitata: superato il limite
+ * vengono scartati i dati usati meno di recente. Se il controllo è abilitato,
+ * prima di riutilizzare i dati di una tabella ne viene verificato il numero di
+ * righe; se è cambiato, la tabella viene ricaricata.
+ *
+ * I dati di una tabella caricati con colonne dei pesi diverse sono conservati
+ * separatamente. I dati restituiti sono condivisi tra le richieste e non devono
+ * essere modificati.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class DatasetCache {
+
+	/**
+	 * Dati di una tabella, caricati o in caricamento.
+	 */
+	private static class Entry {
+		private CompletableFuture<Data> data = new CompletableFuture<Data>();
+		private long size = 0;
+		// numero di righe della tabella al momento del caricamento, -1 se non
+		// controllato
+		private long rowCount = -1;
+		// istante dell'ultimo controllo del numero di righe
+		private long lastProbe;
+	}
+
+	private long maxBytes;
+	private boolean probe;
+	private long probeInterval;
+
+	// dati conservati, dal meno al più recentemente usato
+	private LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long bytesHeld = 0;
+
+	// statistiche di utilizzo
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long invalidations = 0;
+
+	/**
+	 * Istanzia la cache.
+	 *
+	 * @param maxBytes
+	 *            memoria massima, in byte, occupata dai dati conservati
+	 * @param probe
+	 *            true se prima di riutilizzare i dati di una tabella ne va
+	 *            verificato il numero di righe
+	 * @param probeInterval
+	 *            millisecondi entro cui il numero di righe di una tabella non
+	 *            viene verificato di nuovo
+	 */
+	DatasetCache(long maxBytes, boolean probe, long probeInterval) {
+		this.maxBytes = maxBytes;
+		this.probe = probe;
+		this.probeInterval = probeInterval;
+	}
+
+	/**
+	 * Restituisce i dati della tabella table, caricandoli dal database se non sono
+	 * conservati nella cache o se la tabella è cambiata.
+	 *
+	 * @param table
+	 *            nome della tabella
+	 * @param weightColumn
+	 *            nome della colonna con il peso delle righe, oppure null
+	 * @return dati della tabella
+	 * @throws SQLException
+	 *             se il caricamento, anche se avviato da un'altra richiesta,
+	 *             fallisce o se l'attesa del caricamento viene interrotta
+	 * @throws EmptySetException
+	 *             se la tabella è vuota
+	 */
+	Data get(String table, String weightColumn) throws SQLException, EmptySetException {
+		String key = weightColumn == null ? table : table + "#" + weightColumn.toLowerCase();
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		// Il controllo interroga il database, quindi avviene fuori dal lock
+		if (entry != null && entry.data.isDone() && isStale(table, entry)) {
+			synchronized (this) {
+				if (entries.get(key) == entry) {
+					remove(key, entry);
+					invalidations++;
+				}
+			}
+		}
+
+		boolean load = false;
+		synchronized (this) {
+			entry = entries.get(key);
+			if (entry == null) {
+				entry = new Entry();
+				entries.put(key, entry);
+				load = true;
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+
+		if (load)
+			return load(table, weightColumn, key, entry);
+
+		try {
+			return entry.data.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while loading table " + table + ".", e);
+		} catch (ExecutionException e) {
+			// Il caricamento avviato da un'altra richiesta è fallito
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException)
+				throw (SQLException) cause;
+			if (cause instanceof EmptySetException)
+				throw (EmptySetException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new SQLException(cause);
+		}
+	}
+
+	/**
+	 * Carica i dati della tabella table e li conserva in entry, se il
+	 * caricamento è riuscito e i dati rientrano nella memoria disponibile. Il
+	 * caricamento di entry viene sempre concluso, anche se fallisce: in tal caso
+	 * entry viene rimosso dalla cache e le richieste in attesa ricevono l'errore.
+	 *
+	 * @param table
+	 *            nome della tabella
+	 * @param weightColumn
+	 *            nome della colonna con il peso delle righe, oppure null
+	 * @param key
+	 *            chiave di entry nella cache
+	 * @param entry
+	 *            elemento della cache in cui conservare i dati
+	 * @return dati della tabella
+	 * @throws SQLException
+	 *             se il caricamento fallisce
+	 * @throws EmptySetException
+	 *             se la tabella è vuota
+	 */
+	private Data load(String table, String weightColumn, String key, Entry entry)
+			throws SQLException, EmptySetException {
+		Data data;
+		try {
+			if (probe) {
+				entry.rowCount = TableData.getRowCount(table);
+				entry.lastProbe = System.currentTimeMillis();
+			}
+			data = new Data(table, weightColumn);
+			// Non conserva i dati troppo grandi
+			long size = data.getSizeInBytes();
+			synchronized (this) {
+				if (size > maxBytes) {
+					remove(key, entry);
+				} else if (entries.get(key) == entry) {
+					entry.size = size;
+					bytesHeld += size;
+					evict();
+				}
+			}
+		} catch (Throwable e) {
+			// Qualunque errore conclude il caricamento, così che le richieste in attesa
+			// non restino bloccate
+			synchronized (this) {
+				remove(key, entry);
+			}
+			entry.data.completeExceptionally(e);
+			System.out.println("Dataset cache error: " + e);
+			throw e;
+		}
+		entry.data.complete(data);
+		return data;
+	}
+
+	/**
+	 * Verifica se il numero di righe della tabella è cambiato dal caricamento dei
+	 * dati in entry.
+	 *
+	 * @param table
+	 *            nome della tabella
+	 * @param entry
+	 *            elemento della cache caricato
+	 * @return true se i dati vanno ricaricati
+	 */
+	private boolean isStale(String table, Entry entry) {
+		long now = System.currentTimeMillis();
+		synchronized (entry) {
+			if (!probe || entry.rowCount < 0 || now - entry.lastProbe < probeInterval)
+				return false;
+			entry.lastProbe = now;
+		}
+		try {
+			return TableData.getRowCount(table) != entry.rowCount;
+		} catch (SQLException e) {
+			System.out.println("Dataset cache probe error: " + e.getMessage());
+			return true;
+		}
+	}
+
+	/**
+	 * Scarta i dati usati meno di recente finché la memoria occupata non rientra
+	 * nel limite.
+	 */
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (bytesHeld > maxBytes && it.hasNext()) {
+			Entry entry = it.next();
+			if (!entry.data.isDone())
+				continue;
+			it.remove();
+			bytesHeld -= entry.size;
+			evictions++;
+		}
+	}
+
+	private void remove(String key, Entry entry) {
+		if (entries.get(key) == entry) {
+			entries.remove(key);
+			bytesHeld -= entry.size;
+		}
+	}
+
+	/**
+	 * Scarta i dati della tabella table, che verranno ricaricati alla richiesta
+	 * successiva.
+	 *
+	 * @param table
+	 *            nome della tabella
+	 */
+	synchronized void invalidate(String table) {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Entry> current = it.next();
+			String key = current.getKey();
+			Entry entry = current.getValue();
+			if ((key.equals(table) || key.startsWith(table + "#")) && entry.data.isDone()) {
+				it.remove();
+				bytesHeld -= entry.size;
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Restituisce la stringa con le statistiche di utilizzo della cache.
+	 */
+	@Override
+	public synchronized String toString() {
+		return "tables=" + entries.size() + " bytes=" + bytesHeld + " maxBytes=" + maxBytes + " hits=" + hits
+				+ " misses=" + misses + " evictions=" + evictions + " invalidations=" + invalidations;
+	}
+
+	/**
+	 * Restituisce il numero di richieste servite con dati già conservati.
+	 *
+	 * @return numero di richieste servite dalla cache
+	 */
+	synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Restituisce il numero di richieste che hanno richiesto il caricamento dei
+	 * dati.
+	 *
+	 * @return numero di caricamenti
+	 */
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Restituisce la memoria stimata, in byte, occupata dai dati conservati.
+	 *
+	 * @return memoria occupata
+	 */
+	synchronized long getBytesHeld() {
+		return bytesHeld;
+	}
+}
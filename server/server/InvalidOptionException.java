@@ -0,0 +1,26 @@
+package server;
+
+/**
+ * Segnala che un'opzione di una richiesta del client non è valida.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class InvalidOptionException extends Exception {
+	private String option;
+
+	/**
+	 * Istanzia l'eccezione relativa all'opzione option.
+	 * 
+	 * @param option
+	 *            opzione non valida
+	 */
+	public InvalidOptionException(String option) {
+		this.option = option;
+	}
+
+	@Override
+	public String getMessage() {
+		return "Invalid option: " + option + ".";
+	}
+}
@@ -0,0 +1,32 @@
+package server;
+
+/**
+ * Stati di una richiesta di clustering eseguita in modo asincrono da
+ * {@link JobManager}.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+enum JOB_STATUS {
+	/**
+	 * In attesa di un thread libero.
+	 */
+	QUEUED,
+	/**
+	 * In esecuzione.
+	 */
+	RUNNING,
+	/**
+	 * Terminata: il risultato è disponibile.
+	 */
+	COMPLETED,
+	/**
+	 * Non eseguita a causa di un errore, come un'opzione non valida o una
+	 * tabella inesistente, oppure interrotta da un errore imprevisto.
+	 */
+	FAILED,
+	/**
+	 * Annullata su richiesta del client.
+	 */
+	CANCELLED
+}
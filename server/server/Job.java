@@ -0,0 +1,236 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mining.CancellationToken;
+import mining.ProgressListener;
+
+/**
+ * Questa classe rappresenta una richiesta di clustering eseguita in modo
+ * asincrono da {@link JobManager}: ne conserva lo stato, l'avanzamento
+ * notificato dall'algoritmo e, al termine, l'esito della richiesta. Lo stato
+ * può essere letto da più connessioni mentre l'esecuzione prosegue.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class Job implements ProgressListener {
+	// numero massimo di righe di avanzamento conservate
+	private static final int MAX_PROGRESS = 1000;
+
+	private String id;
+	private ClusteringJob request;
+	private JOB_STATUS status = JOB_STATUS.QUEUED;
+	// righe di avanzamento, una per iterazione; oltre MAX_PROGRESS vengono
+	// scartate le più vecchie
+	private List<String> progress = new ArrayList<String>();
+	// numero di righe di avanzamento scartate
+	private int discarded = 0;
+	private ClusteringResult result;
+	private boolean cancelRequested = false;
+	// tempo massimo di esecuzione in millisecondi, 0 per non porre limiti
+	private long timeLimit;
+	// token con cui arrestare l'esecuzione, creato al suo inizio
+	private CancellationToken token;
+	// istante di termine dell'esecuzione, 0 se non terminata
+	private long completionTime = 0;
+
+	/**
+	 * Istanzia il lavoro con identificativo id per la richiesta request.
+	 *
+	 * @param id
+	 *            identificativo del lavoro
+	 * @param request
+	 *            richiesta di clustering
+	 * @param timeLimit
+	 *            tempo massimo di esecuzione in millisecondi, dal suo inizio, 0
+	 *            per non porre limiti
+	 */
+	Job(String id, ClusteringJob request, long timeLimit) {
+		this.id = id;
+		this.request = request;
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Restituisce l'identificativo del lavoro.
+	 *
+	 * @return identificativo del lavoro
+	 */
+	String getId() {
+		return id;
+	}
+
+	/**
+	 * Restituisce la richiesta di clustering.
+	 *
+	 * @return richiesta di clustering
+	 */
+	ClusteringJob getRequest() {
+		return request;
+	}
+
+	/**
+	 * Restituisce il token con cui arrestare l'esecuzione.
+	 *
+	 * @return token dell'esecuzione, null se il lavoro non è stato avviato
+	 */
+	synchronized CancellationToken getToken() {
+		return token;
+	}
+
+	/**
+	 * Restituisce lo stato del lavoro.
+	 *
+	 * @return stato del lavoro
+	 */
+	synchronized JOB_STATUS getStatus() {
+		return status;
+	}
+
+	/**
+	 * Restituisce l'esito della richiesta, con il messaggio d'errore se il lavoro
+	 * è fallito, null se il lavoro non è terminato o è stato annullato prima
+	 * dell'esecuzione.
+	 *
+	 * @return esito della richiesta
+	 */
+	synchronized ClusteringResult getResult() {
+		return result;
+	}
+
+	/**
+	 * Restituisce l'istante di termine dell'esecuzione.
+	 *
+	 * @return istante di termine in millisecondi, 0 se non terminata
+	 */
+	synchronized long getCompletionTime() {
+		return completionTime;
+	}
+
+	/**
+	 * Verifica se il lavoro è terminato, con qualunque esito.
+	 *
+	 * @return true se il lavoro è terminato
+	 */
+	synchronized boolean isDone() {
+		return status == JOB_STATUS.COMPLETED || status == JOB_STATUS.FAILED || status == JOB_STATUS.CANCELLED;
+	}
+
+	/**
+	 * Verifica se è stato richiesto l'annullamento del lavoro.
+	 *
+	 * @return true se l'annullamento è stato richiesto
+	 */
+	synchronized boolean isCancelRequested() {
+		return cancelRequested;
+	}
+
+	/**
+	 * Richiede l'annullamento del lavoro. Un lavoro in attesa viene annullato
+	 * subito; un lavoro in esecuzione si arresta entro l'elaborazione di un blocco
+	 * di righe e conserva come risultato i cluster calcolati fino a quel momento.
+	 *
+	 * @return true se il lavoro non era già terminato
+	 */
+	synchronized boolean cancel() {
+		if (isDone())
+			return false;
+		cancelRequested = true;
+		if (status == JOB_STATUS.QUEUED)
+			finish(JOB_STATUS.CANCELLED, null);
+		else
+			token.cancel();
+		return true;
+	}
+
+	/**
+	 * Segna l'inizio dell'esecuzione e crea il token con cui arrestarla, la cui
+	 * scadenza dipende dal tempo massimo di esecuzione del lavoro.
+	 *
+	 * @return false se il lavoro è stato annullato e non va eseguito
+	 */
+	synchronized boolean start() {
+		if (status != JOB_STATUS.QUEUED)
+			return false;
+		token = new CancellationToken(timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE);
+		status = JOB_STATUS.RUNNING;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Segna il termine dell'esecuzione con lo stato status e il risultato result.
+	 * Se durante l'esecuzione ne è stato richiesto l'annullamento, il lavoro
+	 * risulta annullato e il risultato contiene i cluster parziali.
+	 *
+	 * @param status
+	 *            stato finale
+	 * @param result
+	 *            esito della richiesta, oppure null
+	 */
+	synchronized void finish(JOB_STATUS status, ClusteringResult result) {
+		if (cancelRequested)
+			status = JOB_STATUS.CANCELLED;
+		this.status = status;
+		this.result = result;
+		completionTime = System.currentTimeMillis();
+		notifyAll();
+	}
+
+	@Override
+	public synchronized void iterationCompleted(int iteration, int reassignedTuples, double inertia,
+			long elapsedTime) {
+		if (progress.size() == MAX_PROGRESS) {
+			progress.remove(0);
+			discarded++;
+		}
+		progress.add("iteration=" + iteration + " reassigned=" + reassignedTuples + " inertia=" + inertia
+				+ " elapsed=" + elapsedTime + "ms");
+		notifyAll();
+	}
+
+	/**
+	 * Attende che siano disponibili righe di avanzamento successive alle prime
+	 * from o che il lavoro termini, per al più timeout millisecondi. Aggiunge a
+	 * lines le righe successive alle prime from ancora conservate e restituisce il
+	 * numero di righe prodotte fino a quel momento, da usare come from
+	 * nell'attesa successiva.
+	 *
+	 * @param from
+	 *            numero di righe di avanzamento già lette
+	 * @param timeout
+	 *            attesa massima in millisecondi
+	 * @param lines
+	 *            lista a cui aggiungere le righe non ancora lette
+	 * @return numero di righe di avanzamento prodotte
+	 * @throws InterruptedException
+	 *             se il thread viene interrotto durante l'attesa
+	 */
+	synchronized int waitForProgress(int from, long timeout, List<String> lines) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (discarded + progress.size() <= from && !isDone()) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0)
+				break;
+			wait(remaining);
+		}
+		for (int i = Math.max(0, from - discarded); i < progress.size(); i++)
+			lines.add(progress.get(i));
+		return discarded + progress.size();
+	}
+
+	/**
+	 * Restituisce la stringa con lo stato del lavoro e l'ultima riga di
+	 * avanzamento.
+	 */
+	@Override
+	public synchronized String toString() {
+		String str = "Job " + id + " " + status + " table=" + request.getTableName() + " k="
+				+ request.getNumberOfClusters();
+		if (!progress.isEmpty())
+			str += " " + progress.get(progress.size() - 1);
+		return str;
+	}
+}
@@ -0,0 +1,126 @@
+package server;
+
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Questa classe esegue in modo asincrono le richieste di clustering inviate con
+ * il comando SUBMIT. Ogni richiesta riceve un identificativo con cui il client,
+ * anche da una connessione successiva, può seguirne l'avanzamento, annullarla e
+ * ottenerne il risultato. Le richieste sono eseguite da un pool limitato di
+ * thread con una coda limitata; l'esecuzione di ciascun lavoro può essere
+ * limitata nel tempo e i lavori terminati vengono conservati per un tempo
+ * limitato.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class JobManager {
+	private DatasetCache datasets;
+	private ThreadPoolExecutor workers;
+	// millisecondi per cui un lavoro terminato viene conservato
+	private long retention;
+	// tempo massimo di esecuzione di un lavoro in millisecondi, 0 per non porre
+	// limiti
+	private long timeLimit;
+	private ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+
+	/**
+	 * Istanzia l'oggetto.
+	 *
+	 * @param datasets
+	 *            cache dei dati caricati dal database
+	 * @param numberOfWorkers
+	 *            numero di thread che eseguono i lavori
+	 * @param queueSize
+	 *            numero massimo di lavori in attesa di un thread libero
+	 * @param retention
+	 *            millisecondi per cui un lavoro terminato viene conservato
+	 * @param timeLimit
+	 *            tempo massimo di esecuzione di un lavoro in millisecondi, 0 per
+	 *            non porre limiti
+	 */
+	JobManager(DatasetCache datasets, int numberOfWorkers, int queueSize, long retention, long timeLimit) {
+		this.datasets = datasets;
+		this.retention = retention;
+		this.timeLimit = timeLimit;
+		workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(queueSize));
+	}
+
+	/**
+	 * Accoda la richiesta request e restituisce il lavoro creato per eseguirla.
+	 *
+	 * @param request
+	 *            richiesta di clustering
+	 * @return lavoro creato, null se la coda dei lavori è piena
+	 */
+	Job submit(ClusteringJob request) {
+		purge();
+		Job job = new Job(UUID.randomUUID().toString(), request, timeLimit);
+		jobs.put(job.getId(), job);
+		try {
+			workers.execute(() -> run(job));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(job.getId());
+			return null;
+		}
+		return job;
+	}
+
+	/**
+	 * Restituisce il lavoro con identificativo id.
+	 *
+	 * @param id
+	 *            identificativo del lavoro
+	 * @return lavoro, null se non esiste o è stato scartato
+	 */
+	Job get(String id) {
+		purge();
+		return jobs.get(id);
+	}
+
+	/**
+	 * Esegue il lavoro job, se non è stato annullato mentre era in attesa. Il
+	 * lavoro fallisce se la richiesta non è stata eseguita a causa di un errore,
+	 * il cui messaggio resta disponibile come esito.
+	 */
+	private void run(Job job) {
+		if (!job.start())
+			return;
+		try {
+			ClusteringResult result = job.getRequest().execute(datasets, job, job.getToken());
+			job.finish(result.getError() == null ? JOB_STATUS.COMPLETED : JOB_STATUS.FAILED, result);
+		} catch (RuntimeException e) {
+			System.out.println("Job " + job.getId() + " error: " + e);
+			job.finish(JOB_STATUS.FAILED, new ClusteringResult("Job failed: " + e));
+		}
+	}
+
+	/**
+	 * Scarta i lavori terminati da più di retention millisecondi.
+	 */
+	private void purge() {
+		long now = System.currentTimeMillis();
+		Iterator<Job> it = jobs.values().iterator();
+		while (it.hasNext()) {
+			Job job = it.next();
+			if (job.isDone() && now - job.getCompletionTime() > retention)
+				it.remove();
+		}
+	}
+
+	/**
+	 * Restituisce la stringa con il numero di lavori conservati, in esecuzione e
+	 * in coda.
+	 */
+	@Override
+	public String toString() {
+		return "jobs=" + jobs.size() + " running=" + workers.getActiveCount() + " queued=" + workers.getQueue().size();
+	}
+}
@@ -0,0 +1,361 @@
+package server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import data.Data;
+import data.DistanceMetric;
+import data.GowerDistance;
+import data.ManhattanDistance;
+import data.SquaredEuclideanDistance;
+import data.WeightedDistance;
+import mining.ASSIGNMENT_TYPE;
+import mining.INITIALIZATION_TYPE;
+import mining.KMeansMiner;
+
+/**
+ * Questa classe rappresenta le opzioni facoltative di una richiesta di
+ * clustering, espresse dal client come elenco di coppie chiave=valore separate
+ * da virgole (ad esempio "threads=4"). Le opzioni non specificate mantengono il
+ * valore predefinito di {@link KMeansMiner}.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+class MiningOptions {
+	// numero massimo di righe campionate per la modalità mini-batch se il
+	// campione non è indicato con l'opzione sample
+	private static final int MAX_SAMPLE_SIZE = Math.max(1,
+			Integer.getInteger("kmeans.miniBatch.maxSample", 1000000));
+
+	private Map<String, String> options = new HashMap<String, String>();
+	// misura della distanza indicata con l'opzione distance, null se non indicata
+	private DistanceMetric metric;
+
+	/**
+	 * Istanzia l'oggetto analizzando il testo delle opzioni ricevuto dal client.
+	 * 
+	 * @param text
+	 *            opzioni nella forma chiave=valore, separate da virgole
+	 * @throws InvalidOptionException
+	 *             se un'opzione non è nella forma chiave=valore
+	 */
+	MiningOptions(String text) throws InvalidOptionException {
+		for (String option : text.split(",")) {
+			option = option.trim();
+			if (option.isEmpty())
+				continue;
+			int separator = option.indexOf('=');
+			if (separator <= 0)
+				throw new InvalidOptionException(option);
+			options.put(option.substring(0, separator).trim().toLowerCase(), option.substring(separator + 1).trim());
+		}
+	}
+
+	/**
+	 * Restituisce il nome della colonna con il peso di ciascuna riga della
+	 * tabella, indicato con l'opzione weight.
+	 * 
+	 * @return nome della colonna dei pesi, null se non indicato
+	 * @throws InvalidOptionException
+	 *             se il nome è vuoto
+	 */
+	String getWeightColumn() throws InvalidOptionException {
+		String weightColumn = options.get("weight");
+		if (weightColumn != null && weightColumn.isEmpty())
+			throw new InvalidOptionException("weight");
+		return weightColumn;
+	}
+
+	/**
+	 * Restituisce il numero di righe del campione della tabella da clusterizzare,
+	 * {@link Data#Data(String, String, int, int, java.util.Random)}, 0 per
+	 * clusterizzare tutte le righe. Il numero è indicato con l'opzione sample;
+	 * se non è indicato, in modalità mini-batch il campione contiene le righe che
+	 * i mini-batch possono estrarre, batch per batches, fino a
+	 * kmeans.miniBatch.maxSample righe, mentre le altre modalità clusterizzano
+	 * tutte le righe.
+	 * 
+	 * @param miner
+	 *            oggetto già configurato con {@link MiningOptions#configure(KMeansMiner)}
+	 * @return numero di righe del campione, 0 per nessun campionamento
+	 * @throws InvalidOptionException
+	 *             se il numero indicato non è un intero non negativo
+	 */
+	int getSampleSize(KMeansMiner miner) throws InvalidOptionException {
+		String value = options.get("sample");
+		if (value != null) {
+			try {
+				int sampleSize = Integer.parseInt(value);
+				if (sampleSize >= 0)
+					return sampleSize;
+			} catch (NumberFormatException e) {
+				// Gestita sotto
+			}
+			throw new InvalidOptionException("sample=" + value);
+		}
+		if (miner.getBatchSize() == 0)
+			return 0;
+		return (int) Math.min((long) miner.getBatchSize() * miner.getMaxBatches(), MAX_SAMPLE_SIZE);
+	}
+
+	/**
+	 * Applica le opzioni a miner.
+	 * 
+	 * @param miner
+	 *            oggetto da configurare
+	 * @throws InvalidOptionException
+	 *             se un'opzione è sconosciuta o ha un valore non valido
+	 */
+	void configure(KMeansMiner miner) throws InvalidOptionException {
+		Map<String, String> remaining = new HashMap<String, String>(options);
+		// Opzioni dei dati, non dell'algoritmo, {@link MiningOptions#getWeightColumn()}
+		// e {@link MiningOptions#getSampleSize(KMeansMiner)}
+		remaining.remove("weight");
+		remaining.remove("sample");
+
+		if (remaining.containsKey("threads"))
+			miner.setNumberOfThreads(getPositiveInt(remaining, "threads"));
+		if (remaining.containsKey("seed"))
+			miner.setSeed(getLong(remaining, "seed"));
+		if (remaining.containsKey("init"))
+			miner.setInitialization(getInitialization(remaining, "init"));
+		if (remaining.containsKey("assignment"))
+			miner.setAssignment(getAssignment(remaining, "assignment"));
+		if (remaining.containsKey("batch"))
+			miner.setBatchSize(getPositiveInt(remaining, "batch"));
+		if (remaining.containsKey("batches"))
+			miner.setMaxBatches(getPositiveInt(remaining, "batches"));
+		if (remaining.containsKey("assign"))
+			miner.setFinalAssignment(getBoolean(remaining, "assign"));
+		if (remaining.containsKey("tolerance"))
+			miner.setShiftTolerance(getNonNegativeDouble(remaining, "tolerance"));
+		if (remaining.containsKey("iterations"))
+			miner.setMaxIterations(getPositiveInt(remaining, "iterations"));
+		if (remaining.containsKey("reassigned"))
+			miner.setReassignmentTolerance(getNonNegativeDouble(remaining, "reassigned"));
+		if (remaining.containsKey("timeout"))
+			miner.setTimeLimit(getPositiveInt(remaining, "timeout"));
+		if (remaining.containsKey("distance")) {
+			metric = getDistanceMetric(remaining, "distance", "attributeweights");
+			miner.setDistanceMetric(metric);
+		}
+
+		if (!remaining.isEmpty())
+			throw new InvalidOptionException(remaining.keySet().iterator().next());
+	}
+
+	/**
+	 * Verifica che gli attributi indicati nelle opzioni siano presenti in data.
+	 * 
+	 * @param data
+	 *            dati da clusterizzare
+	 * @throws InvalidOptionException
+	 *             se a un attributo non presente in data è assegnato un peso
+	 */
+	void checkAttributes(Data data) throws InvalidOptionException {
+		if (metric instanceof WeightedDistance) {
+			String unknown = ((WeightedDistance) metric).findUnknownAttribute(data);
+			if (unknown != null)
+				throw new InvalidOptionException("attributeweights=" + unknown);
+		}
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come intero
+	 * lungo.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @return valore dell'opzione
+	 * @throws InvalidOptionException
+	 *             se il valore non è un intero
+	 */
+	private long getLong(Map<String, String> remaining, String key) throws InvalidOptionException {
+		String value = remaining.remove(key);
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new InvalidOptionException(key + "=" + value);
+		}
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come numero
+	 * reale non negativo.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @return valore dell'opzione
+	 * @throws InvalidOptionException
+	 *             se il valore non è un numero reale non negativo
+	 */
+	private double getNonNegativeDouble(Map<String, String> remaining, String key) throws InvalidOptionException {
+		String value = remaining.remove(key);
+		try {
+			double number = Double.parseDouble(value);
+			if (number >= 0)
+				return number;
+		} catch (NumberFormatException e) {
+			// Gestita sotto
+		}
+		throw new InvalidOptionException(key + "=" + value);
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come booleano:
+	 * true oppure false.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @return valore dell'opzione
+	 * @throws InvalidOptionException
+	 *             se il valore non è true né false
+	 */
+	private boolean getBoolean(Map<String, String> remaining, String key) throws InvalidOptionException {
+		String value = remaining.remove(key);
+		switch (value.toLowerCase()) {
+		case "true":
+			return true;
+		case "false":
+			return false;
+		default:
+			throw new InvalidOptionException(key + "=" + value);
+		}
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come metodo di
+	 * scelta dei centroidi iniziali: random, kmeans++ oppure kmeans||.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @return metodo di scelta dei centroidi
+	 * @throws InvalidOptionException
+	 *             se il valore non corrisponde ad alcun metodo
+	 */
+	private INITIALIZATION_TYPE getInitialization(Map<String, String> remaining, String key)
+			throws InvalidOptionException {
+		String value = remaining.remove(key);
+		switch (value.toLowerCase()) {
+		case "random":
+			return INITIALIZATION_TYPE.RANDOM;
+		case "kmeans++":
+			return INITIALIZATION_TYPE.KMEANS_PLUS_PLUS;
+		case "kmeans||":
+			return INITIALIZATION_TYPE.KMEANS_PARALLEL;
+		default:
+			throw new InvalidOptionException(key + "=" + value);
+		}
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come metodo di
+	 * assegnazione delle tuple: lloyd oppure hamerly.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @return metodo di assegnazione
+	 * @throws InvalidOptionException
+	 *             se il valore non corrisponde ad alcun metodo
+	 */
+	private ASSIGNMENT_TYPE getAssignment(Map<String, String> remaining, String key) throws InvalidOptionException {
+		String value = remaining.remove(key);
+		switch (value.toLowerCase()) {
+		case "lloyd":
+			return ASSIGNMENT_TYPE.LLOYD;
+		case "hamerly":
+			return ASSIGNMENT_TYPE.HAMERLY;
+		default:
+			throw new InvalidOptionException(key + "=" + value);
+		}
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come misura
+	 * della distanza: manhattan, euclidean, gower oppure weighted. I pesi della
+	 * distanza weighted sono indicati con l'opzione weightsKey, nella forma
+	 * attributo:peso separati da punto e virgola (ad esempio
+	 * "temperature:2;outlook:0.5"); gli attributi non indicati hanno peso 1.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @param weightsKey
+	 *            nome dell'opzione con i pesi degli attributi
+	 * @return misura della distanza
+	 * @throws InvalidOptionException
+	 *             se il valore non corrisponde ad alcuna misura o se i pesi non
+	 *             sono validi
+	 */
+	private DistanceMetric getDistanceMetric(Map<String, String> remaining, String key, String weightsKey)
+			throws InvalidOptionException {
+		String value = remaining.remove(key);
+		switch (value.toLowerCase()) {
+		case "manhattan":
+			return new ManhattanDistance();
+		case "euclidean":
+			return new SquaredEuclideanDistance();
+		case "gower":
+			return new GowerDistance();
+		case "weighted":
+			String weights = remaining.remove(weightsKey);
+			Map<String, Double> attributeWeights = new HashMap<String, Double>();
+			if (weights != null) {
+				for (String weight : weights.split(";")) {
+					int separator = weight.indexOf(':');
+					if (separator <= 0)
+						throw new InvalidOptionException(weightsKey + "=" + weights);
+					try {
+						attributeWeights.put(weight.substring(0, separator).trim(),
+								Double.parseDouble(weight.substring(separator + 1).trim()));
+					} catch (NumberFormatException e) {
+						throw new InvalidOptionException(weightsKey + "=" + weights);
+					}
+				}
+			}
+			try {
+				return new WeightedDistance(attributeWeights);
+			} catch (IllegalArgumentException e) {
+				throw new InvalidOptionException(weightsKey + "=" + weights);
+			}
+		default:
+			throw new InvalidOptionException(key + "=" + value);
+		}
+	}
+
+	/**
+	 * Rimuove da remaining l'opzione key e ne restituisce il valore come intero
+	 * positivo.
+	 * 
+	 * @param remaining
+	 *            opzioni non ancora applicate
+	 * @param key
+	 *            nome dell'opzione
+	 * @return valore dell'opzione
+	 * @throws InvalidOptionException
+	 *             se il valore non è un intero positivo
+	 */
+	private int getPositiveInt(Map<String, String> remaining, String key) throws InvalidOptionException {
+		String value = remaining.remove(key);
+		try {
+			int number = Integer.parseInt(value);
+			if (number > 0)
+				return number;
+		} catch (NumberFormatException e) {
+			// Gestita sotto
+		}
+		throw new InvalidOptionException(key + "=" + value);
+	}
+}
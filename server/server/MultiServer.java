@@ -1,79 +1,394 @@
-package server;
-
-import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-
-/**
- * Questa classe implementa il server per l'applicazione. Si occupa di accettare
- * le richieste e creare i thread per la loro esecuzione.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class MultiServer {
-	/**
-	 * Porta su cui il server accetter le connessioni.
-	 */
-	private int port;
-
-	/**
-	 * Istanzia un oggetto di tipo {@link MultiServer} e avvia il server.
-	 * 
-	 * @param args
-	 *            argomenti passati nel momento dell'avvio del programma
-	 */
-	public static void main(String[] args) {
-		MultiServer ms = new MultiServer();
-		ms.run();
-	}
-
-	/**
-	 * Crea un server con porta predefinita 8080.
-	 */
-	public MultiServer() {
-		port = 8080;
-	}
-
-	/**
-	 * Crea un server in ascolto su una specifica porta.
-	 * 
-	 * @param port
-	 *            numero della porta
-	 */
-	public MultiServer(int port) {
-		this.port = port;
-	}
-
-	/**
-	 * Crea il socket e si mette in ascolto per richieste di connessione da parte
-	 * dei client. Crea un {@link ServerOneClient} per ogni richiesta accettata.
-	 * Gestisce gli errori di connessione con stampa dei relativi messaggi di
-	 * errore.
-	 */
-	private void run() {
-		ServerSocket serverSocket = null;
-		try {
-			serverSocket = new ServerSocket(port);
-			while (true) {
-				System.out.println("In attesa di connessione.");
-				Socket socket = serverSocket.accept();
-				try {
-					new ServerOneClient(socket);
-					System.out.println("Connessione accettata.");
-				} catch (IOException e) {
-					System.out.println("IOException: " + e.getMessage() + "\nClosing socket.");
-					socket.close();
-				}
-			}
-		} catch (IOException e) {
-			System.out.println("Socket error: " + e.getMessage());
-		} finally {
-			try {
-				serverSocket.close();
-			} catch (IOException e) {
-				System.out.println("Socket closing error: " + e.getMessage());
-			}
-		}
-	}
-}
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Questa classe implementa il server per l'applicazione. Un unico thread
+ * accetta le connessioni con un {@link Selector} e le tiene in attesa, senza
+ * impegnare altri thread, finché il client non invia una richiesta; solo allora
+ * la connessione viene affidata al {@link ServerOneClient} della sessione,
+ * eseguito da un pool limitato di thread. Eseguite le richieste ricevute, la
+ * connessione torna in attesa nel selector finché il client non invia la
+ * richiesta successiva o il comando QUIT.
+ *
+ * Il numero di thread del pool e la lunghezza della sua coda sono configurabili
+ * tramite le proprietà di sistema kmeans.server.workers e
+ * kmeans.server.queueSize. Se il pool e la coda sono pieni le richieste
+ * successive restano in attesa nel selector; oltre kmeans.server.maxConnections
+ * connessioni aperte il server smette di accettarne di nuove finché qualcuna non
+ * viene chiusa. Le connessioni su cui il client non invia dati per
+ * kmeans.server.idleTimeout millisecondi vengono chiuse.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class MultiServer {
+	// numero di thread che eseguono le richieste
+	private static final int WORKERS = Math.max(1,
+			Integer.getInteger("kmeans.server.workers", Runtime.getRuntime().availableProcessors()));
+	// numero di richieste in coda in attesa di un thread libero
+	private static final int QUEUE_SIZE = Math.max(0, Integer.getInteger("kmeans.server.queueSize", 64));
+	// numero massimo di connessioni aperte
+	private static final int MAX_CONNECTIONS = Math.max(1, Integer.getInteger("kmeans.server.maxConnections", 10000));
+	// millisecondi di inattività del client dopo cui la connessione viene chiusa, 0
+	// per non chiuderla
+	private static final int IDLE_TIMEOUT = Math.max(0, Integer.getInteger("kmeans.server.idleTimeout", 300000));
+	// millisecondi tra due ricerche consecutive delle connessioni inattive
+	private static final long IDLE_CHECK_INTERVAL = 1000;
+
+	/**
+	 * Connessione in attesa nel selector.
+	 */
+	private static class Connection {
+		private SocketChannel channel;
+		// byte ricevuti dal client in attesa di una richiesta completa
+		private ByteBuffer received;
+		// sessione del client, null finché non è stata eseguita la prima richiesta
+		private ServerOneClient client;
+		// istante, in millisecondi, dell'ultima attività del client
+		private long lastActivity = System.currentTimeMillis();
+
+		Connection(SocketChannel channel, ByteBuffer received) {
+			this.channel = channel;
+			this.received = received;
+		}
+	}
+
+	/**
+	 * Porta su cui il server accetterà le connessioni.
+	 */
+	private int port;
+
+	/**
+	 * Cache dei dati caricati dal database, condivisa da tutte le richieste. La
+	 * memoria massima occupata e il controllo del numero di righe delle tabelle
+	 * sono configurabili tramite le proprietà di sistema kmeans.cache.maxBytes,
+	 * kmeans.cache.probe e kmeans.cache.probeInterval.
+	 */
+	private DatasetCache datasets = new DatasetCache(
+			Long.getLong("kmeans.cache.maxBytes", Runtime.getRuntime().maxMemory() / 4),
+			Boolean.parseBoolean(System.getProperty("kmeans.cache.probe", "true")),
+			Long.getLong("kmeans.cache.probeInterval", 10000));
+
+	/**
+	 * Lavori asincroni inviati con il comando SUBMIT. Il numero di thread che li
+	 * eseguono, la lunghezza della coda, i millisecondi per cui un lavoro
+	 * terminato viene conservato e il tempo massimo di esecuzione di un lavoro
+	 * sono configurabili tramite le proprietà di sistema kmeans.jobs.workers,
+	 * kmeans.jobs.queueSize, kmeans.jobs.retention e kmeans.jobs.timeLimit.
+	 */
+	private JobManager jobs = new JobManager(datasets,
+			Math.max(1, Integer.getInteger("kmeans.jobs.workers", Runtime.getRuntime().availableProcessors())),
+			Math.max(1, Integer.getInteger("kmeans.jobs.queueSize", 64)),
+			Long.getLong("kmeans.jobs.retention", 3600000), Math.max(0, Long.getLong("kmeans.jobs.timeLimit", 0)));
+
+	/**
+	 * Istanzia un oggetto di tipo {@link MultiServer} e avvia il server.
+	 * 
+	 * @param args
+	 *            argomenti passati nel momento dell'avvio del programma
+	 */
+	public static void main(String[] args) {
+		MultiServer ms = new MultiServer();
+		ms.run();
+	}
+
+	/**
+	 * Crea un server con porta predefinita 8080.
+	 */
+	public MultiServer() {
+		port = 8080;
+	}
+
+	/**
+	 * Crea un server in ascolto su una specifica porta.
+	 * 
+	 * @param port
+	 *            numero della porta
+	 */
+	public MultiServer(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * Apre il canale in ascolto sulla porta del server e gestisce le connessioni:
+	 * di ogni connessione accettata attende, senza bloccarsi, l'intestazione con
+	 * cui il client sceglie il {@link Protocol}, a cui risponde con l'intestazione
+	 * del server, seguita dal primo byte della richiesta. La connessione viene quindi
+	 * affidata a un {@link ServerOneClient}, appena il pool di thread ha posto;
+	 * quando il {@link ServerOneClient} ha eseguito le richieste ricevute, la
+	 * connessione torna nel selector in attesa del primo byte della richiesta
+	 * successiva. Gestisce gli errori di connessione con stampa dei relativi
+	 * messaggi di errore.
+	 */
+	private void run() {
+		ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		// posti disponibili tra i thread del pool e la sua coda
+		Semaphore slots = new Semaphore(WORKERS + QUEUE_SIZE);
+		AtomicInteger openConnections = new AtomicInteger();
+		// connessioni con una richiesta in attesa di un posto nel pool
+		ArrayDeque<Connection> pending = new ArrayDeque<Connection>();
+		// connessioni restituite dal pool, da registrare di nuovo nel selector
+		ConcurrentLinkedQueue<Connection> returning = new ConcurrentLinkedQueue<Connection>();
+		long lastIdleCheck = System.currentTimeMillis();
+
+		try (Selector selector = Selector.open(); ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			serverChannel.bind(new InetSocketAddress(port));
+			serverChannel.configureBlocking(false);
+			SelectionKey acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+			System.out.println("In attesa di connessione.");
+
+			while (true) {
+				// Le chiavi già selezionate e non elaborate non sbloccherebbero select()
+				if (!selector.selectedKeys().isEmpty())
+					selector.selectNow();
+				else if (IDLE_TIMEOUT > 0)
+					selector.select(IDLE_CHECK_INTERVAL);
+				else
+					selector.select();
+
+				Connection returned;
+				while ((returned = returning.poll()) != null)
+					register(returned, selector, openConnections);
+
+				boolean handedOver = false;
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable()) {
+						accept(serverChannel, selector, openConnections);
+					} else if (key.isReadable() && receive(key, openConnections)) {
+						key.cancel();
+						pending.add((Connection) key.attachment());
+						handedOver = true;
+					}
+				}
+
+				// La modalità bloccante richiede che la chiave annullata sia rimossa
+				if (handedOver)
+					selector.selectNow();
+				while (!pending.isEmpty() && slots.tryAcquire())
+					dispatch(pending.poll(), workers, slots, openConnections, selector, returning);
+
+				if (IDLE_TIMEOUT > 0 && System.currentTimeMillis() - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+					lastIdleCheck = System.currentTimeMillis();
+					closeIdleConnections(selector, openConnections);
+				}
+
+				acceptKey.interestOps(openConnections.get() < MAX_CONNECTIONS ? SelectionKey.OP_ACCEPT : 0);
+			}
+		} catch (IOException e) {
+			System.out.println("Socket error: " + e.getMessage());
+		} finally {
+			workers.shutdown();
+		}
+	}
+
+	/**
+	 * Accetta una connessione e la registra in selector in attesa
+	 * dell'intestazione e della richiesta del client.
+	 * 
+	 * @param serverChannel
+	 *            canale in ascolto
+	 * @param selector
+	 *            selector delle connessioni in attesa
+	 * @param openConnections
+	 *            numero di connessioni aperte
+	 */
+	private void accept(ServerSocketChannel serverChannel, Selector selector, AtomicInteger openConnections) {
+		SocketChannel channel = null;
+		try {
+			channel = serverChannel.accept();
+			if (channel == null)
+				return;
+			openConnections.incrementAndGet();
+			System.out.println("Connection accepted: " + channel.socket());
+			channel.configureBlocking(false);
+			// Legge prima la sola intestazione, poi il primo byte della richiesta
+			ByteBuffer received = ByteBuffer.allocate(Protocol.HEADER_LENGTH + 1);
+			received.limit(Protocol.HEADER_LENGTH);
+			channel.register(selector, SelectionKey.OP_READ, new Connection(channel, received));
+		} catch (IOException e) {
+			System.out.println("IOException: " + e.getMessage() + "\nClosing socket.");
+			close(channel, openConnections);
+		}
+	}
+
+	/**
+	 * Registra di nuovo in selector la connessione connection, restituita dal pool
+	 * al termine delle richieste ricevute, in attesa della richiesta successiva.
+	 * 
+	 * @param connection
+	 *            connessione restituita dal pool
+	 * @param selector
+	 *            selector delle connessioni in attesa
+	 * @param openConnections
+	 *            numero di connessioni aperte
+	 */
+	private void register(Connection connection, Selector selector, AtomicInteger openConnections) {
+		try {
+			connection.lastActivity = System.currentTimeMillis();
+			connection.channel.configureBlocking(false);
+			connection.channel.register(selector, SelectionKey.OP_READ, connection);
+		} catch (IOException e) {
+			System.out.println("IOException: " + e.getMessage() + "\nClosing socket.");
+			close(connection.channel, openConnections);
+		}
+	}
+
+	/**
+	 * Chiude le connessioni in attesa nel selector su cui il client non ha inviato
+	 * dati da più di {@link MultiServer#IDLE_TIMEOUT} millisecondi.
+	 * 
+	 * @param selector
+	 *            selector delle connessioni in attesa
+	 * @param openConnections
+	 *            numero di connessioni aperte
+	 */
+	private void closeIdleConnections(Selector selector, AtomicInteger openConnections) {
+		long now = System.currentTimeMillis();
+		for (SelectionKey key : selector.keys()) {
+			if (!key.isValid() || !(key.attachment() instanceof Connection))
+				continue;
+			Connection connection = (Connection) key.attachment();
+			if (now - connection.lastActivity > IDLE_TIMEOUT) {
+				System.out.println("Idle timeout: " + connection.channel.socket());
+				key.cancel();
+				close(connection.channel, openConnections);
+			}
+		}
+	}
+
+	/**
+	 * Legge i byte disponibili sulla connessione della chiave key. Restituisce true
+	 * se è stato ricevuto il primo byte della richiesta, preceduto, nella prima
+	 * richiesta della connessione, dall'intestazione del client, a cui risponde
+	 * appena ricevuta, {@link Protocol#accept(byte[])}; chiude la connessione se il
+	 * client l'ha chiusa o se l'intestazione non corrisponde ad alcun formato.
+	 * 
+	 * @param key
+	 *            chiave della connessione
+	 * @param openConnections
+	 *            numero di connessioni aperte
+	 * @return true se la connessione ha una richiesta da eseguire
+	 */
+	private boolean receive(SelectionKey key, AtomicInteger openConnections) {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Connection connection = (Connection) key.attachment();
+		ByteBuffer received = connection.received;
+		connection.lastActivity = System.currentTimeMillis();
+		try {
+			if (channel.read(received) < 0) {
+				key.cancel();
+				close(channel, openConnections);
+				return false;
+			}
+			if (connection.client == null && received.limit() == Protocol.HEADER_LENGTH
+					&& !received.hasRemaining()) {
+				byte[] header = Protocol.accept(received.array());
+				if (header == null) {
+					System.out.println("Unknown protocol: " + channel.socket());
+					key.cancel();
+					close(channel, openConnections);
+					return false;
+				}
+				ByteBuffer reply = ByteBuffer.wrap(header);
+				// Il buffer di invio di una connessione appena aperta contiene l'intestazione
+				while (reply.hasRemaining())
+					if (channel.write(reply) < 0)
+						throw new IOException("Cannot write protocol header.");
+				received.limit(received.capacity());
+				channel.read(received);
+			}
+			return !received.hasRemaining();
+		} catch (IOException e) {
+			System.out.println("Connection error: " + e.getMessage());
+			key.cancel();
+			close(channel, openConnections);
+			return false;
+		}
+	}
+
+	/**
+	 * Affida a workers l'esecuzione della richiesta ricevuta sulla connessione
+	 * connection, creandone la sessione alla prima richiesta. Al termine libera
+	 * il posto occupato nel pool e, se la sessione non è stata chiusa, restituisce
+	 * la connessione al selector tramite returning; risveglia quindi selector,
+	 * così che possano essere affidate le richieste in attesa.
+	 * 
+	 * @param connection
+	 *            connessione, la cui chiave è stata annullata, con una richiesta
+	 *            da eseguire
+	 * @param workers
+	 *            pool di thread che eseguono le richieste
+	 * @param slots
+	 *            posti disponibili nel pool, di cui uno già acquisito
+	 * @param openConnections
+	 *            numero di connessioni aperte
+	 * @param selector
+	 *            selector delle connessioni in attesa
+	 * @param returning
+	 *            connessioni da registrare di nuovo in selector
+	 */
+	private void dispatch(Connection connection, ThreadPoolExecutor workers, Semaphore slots,
+			AtomicInteger openConnections, Selector selector, ConcurrentLinkedQueue<Connection> returning) {
+		SocketChannel channel = connection.channel;
+		try {
+			channel.configureBlocking(true);
+			channel.socket().setSoTimeout(IDLE_TIMEOUT);
+			if (connection.client == null)
+				connection.client = new ServerOneClient(channel.socket(), connection.received.array(), datasets,
+						jobs);
+			else
+				connection.client.resume(connection.received.array());
+			// Le richieste successive sono precedute solo dal loro primo byte
+			connection.received = ByteBuffer.allocate(1);
+			ServerOneClient client = connection.client;
+			workers.execute(() -> {
+				try {
+					client.run();
+				} finally {
+					if (client.isClosed())
+						openConnections.decrementAndGet();
+					else
+						returning.add(connection);
+					slots.release();
+					selector.wakeup();
+				}
+			});
+		} catch (IOException e) {
+			System.out.println("IOException: " + e.getMessage() + "\nClosing socket.");
+			slots.release();
+			close(channel, openConnections);
+		}
+	}
+
+	private void close(SocketChannel channel, AtomicInteger openConnections) {
+		if (channel == null)
+			return;
+		openConnections.decrementAndGet();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.out.println("Socket closing error: " + e.getMessage());
+		}
+	}
+}
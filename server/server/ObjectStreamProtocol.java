@@ -0,0 +1,158 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+
+/**
+ * Formato in cui le richieste e le risposte sono stringhe e numeri serializzati
+ * con gli stream di oggetti: comandi e argomenti sono inviati come
+ * {@link String} e {@link Integer}, le risposte come {@link String}, l'esito di
+ * un clustering come i messaggi di testo di
+ * {@link ClusteringResult#toMessages()}. È il formato usato dai client delle
+ * versioni precedenti, che il server continua ad accettare.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+class ObjectStreamProtocol extends Protocol {
+
+	/**
+	 * Stream di oggetti la cui intestazione è già stata inviata da
+	 * {@link MultiServer} all'apertura della connessione.
+	 */
+	private static class ContinuedObjectOutputStream extends ObjectOutputStream {
+
+		ContinuedObjectOutputStream(OutputStream out) throws IOException {
+			super(out);
+		}
+
+		@Override
+		protected void writeStreamHeader() {
+			// Intestazione già inviata
+		}
+	}
+
+	private ObjectInputStream in;
+	private ObjectOutputStream out;
+
+	/**
+	 * Crea gli stream di oggetti della sessione.
+	 *
+	 * @param in
+	 *            stream di input, posizionato all'inizio dell'intestazione dello
+	 *            stream di oggetti del client
+	 * @param out
+	 *            stream di output, su cui è già stata inviata l'intestazione dello
+	 *            stream di oggetti del server
+	 * @throws IOException
+	 *             {@link ObjectInputStream#ObjectInputStream(InputStream)}
+	 */
+	ObjectStreamProtocol(InputStream in, OutputStream out) throws IOException {
+		this.in = new ObjectInputStream(in);
+		this.out = new ContinuedObjectOutputStream(out);
+	}
+
+	/**
+	 * Verifica se header è l'intestazione di uno stream di oggetti:
+	 * STREAM_MAGIC seguito da STREAM_VERSION.
+	 *
+	 * @param header
+	 *            primi byte ricevuti dal client
+	 * @return true se il client usa gli stream di oggetti
+	 */
+	static boolean matches(byte[] header) {
+		byte[] expected = header();
+		for (int i = 0; i < expected.length; i++)
+			if (header[i] != expected[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Restituisce l'intestazione di uno stream di oggetti.
+	 *
+	 * @return STREAM_MAGIC seguito da STREAM_VERSION
+	 */
+	static byte[] header() {
+		return new byte[] { (byte) (ObjectStreamConstants.STREAM_MAGIC >> 8), (byte) ObjectStreamConstants.STREAM_MAGIC,
+				(byte) (ObjectStreamConstants.STREAM_VERSION >> 8), (byte) ObjectStreamConstants.STREAM_VERSION };
+	}
+
+	@Override
+	String readCommand() throws IOException, ClassNotFoundException {
+		return readString();
+	}
+
+	/**
+	 * Attende la ricezione di una stringa non nulla.
+	 */
+	@Override
+	String readString() throws IOException, ClassNotFoundException {
+		String string;
+		while (true) {
+			string = (String) in.readObject();
+			if (string != null)
+				break;
+		}
+		return string;
+	}
+
+	/**
+	 * Attende la ricezione di un numero non nullo.
+	 */
+	@Override
+	int readInt() throws IOException, ClassNotFoundException {
+		Integer number;
+		while (true) {
+			number = (Integer) in.readObject();
+			if (number != null) {
+				break;
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Invia il messaggio OK.
+	 */
+	@Override
+	void writeAccepted() throws IOException {
+		out.writeObject("OK");
+	}
+
+	@Override
+	void writeMessage(String message) throws IOException {
+		out.writeObject(message);
+	}
+
+	@Override
+	void writeError(String message) throws IOException {
+		out.writeObject(message);
+	}
+
+	/**
+	 * Invia i messaggi di testo dell'esito, {@link ClusteringResult#toMessages()}.
+	 */
+	@Override
+	void writeResult(ClusteringResult result) throws IOException {
+		for (String message : result.toMessages())
+			out.writeObject(message);
+	}
+
+	/**
+	 * Invia il messaggio END.
+	 */
+	@Override
+	void writeEnd() throws IOException {
+		out.writeObject("END");
+	}
+
+	@Override
+	void flush() throws IOException {
+		out.flush();
+	}
+}
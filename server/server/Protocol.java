@@ -0,0 +1,168 @@
+package server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Questa classe rappresenta il formato con cui una sessione riceve le
+ * richieste del client e gli invia le risposte. Il formato viene scelto in base
+ * ai primi quattro byte inviati dal client: l'intestazione di uno stream di
+ * oggetti, {@link ObjectStreamProtocol}, oppure quella del formato binario,
+ * {@link BinaryProtocol}.
+ *
+ * Una richiesta è costituita da un comando seguito dai suoi argomenti; la
+ * risposta è una sequenza di messaggi, errori ed esiti di clustering, conclusa
+ * da {@link Protocol#writeEnd()}.
+ *
+ * @author Gianluca Pagliara
+ *
+ */
+abstract class Protocol {
+	/**
+	 * Numero di byte dell'intestazione con cui il client sceglie il formato.
+	 */
+	static final int HEADER_LENGTH = 4;
+
+	/**
+	 * Restituisce i byte con cui il server risponde all'intestazione header
+	 * inviata dal client, null se l'intestazione non corrisponde ad alcun formato.
+	 *
+	 * @param header
+	 *            primi {@link Protocol#HEADER_LENGTH} byte ricevuti dal client
+	 * @return intestazione del server, oppure null
+	 */
+	static byte[] accept(byte[] header) {
+		if (ObjectStreamProtocol.matches(header))
+			return ObjectStreamProtocol.header();
+		if (BinaryProtocol.matches(header))
+			return BinaryProtocol.header(header);
+		return null;
+	}
+
+	/**
+	 * Crea il formato scelto dal client con l'intestazione header, a cui
+	 * {@link MultiServer} ha già risposto. Gli stream di input e di output sono
+	 * posizionati all'inizio dell'intestazione del client e dopo quella del server.
+	 *
+	 * @param header
+	 *            primi {@link Protocol#HEADER_LENGTH} byte ricevuti dal client
+	 * @param in
+	 *            stream di input della connessione
+	 * @param out
+	 *            stream di output della connessione
+	 * @return formato della sessione
+	 * @throws IOException
+	 *             se l'intestazione non corrisponde ad alcun formato o non può
+	 *             essere letta
+	 */
+	static Protocol open(byte[] header, InputStream in, OutputStream out) throws IOException {
+		if (ObjectStreamProtocol.matches(header))
+			return new ObjectStreamProtocol(in, out);
+		if (BinaryProtocol.matches(header))
+			return new BinaryProtocol(in, out);
+		throw new IOException("Unknown protocol.");
+	}
+
+	/**
+	 * Attende la ricezione del comando di una richiesta.
+	 *
+	 * @return nome del comando
+	 * @throws IOException
+	 *             se la lettura fallisce
+	 * @throws ClassNotFoundException
+	 *             se il client invia un oggetto di classe sconosciuta
+	 */
+	abstract String readCommand() throws IOException, ClassNotFoundException;
+
+	/**
+	 * Legge un argomento testuale della richiesta.
+	 *
+	 * @return argomento ricevuto
+	 * @throws IOException
+	 *             se la lettura fallisce
+	 * @throws ClassNotFoundException
+	 *             se il client invia un oggetto di classe sconosciuta
+	 */
+	abstract String readString() throws IOException, ClassNotFoundException;
+
+	/**
+	 * Legge un argomento numerico della richiesta.
+	 *
+	 * @return argomento ricevuto
+	 * @throws IOException
+	 *             se la lettura fallisce
+	 * @throws ClassNotFoundException
+	 *             se il client invia un oggetto di classe sconosciuta
+	 */
+	abstract int readInt() throws IOException, ClassNotFoundException;
+
+	/**
+	 * Segnala al client che gli argomenti della richiesta sono stati ricevuti.
+	 *
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	abstract void writeAccepted() throws IOException;
+
+	/**
+	 * Invia al client un messaggio di testo.
+	 *
+	 * @param message
+	 *            messaggio da inviare
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	abstract void writeMessage(String message) throws IOException;
+
+	/**
+	 * Invia al client il messaggio d'errore che ha impedito la richiesta.
+	 *
+	 * @param message
+	 *            messaggio d'errore
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	abstract void writeError(String message) throws IOException;
+
+	/**
+	 * Invia al client l'esito di una richiesta di clustering.
+	 *
+	 * @param result
+	 *            esito da inviare
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	abstract void writeResult(ClusteringResult result) throws IOException;
+
+	/**
+	 * Conclude la risposta alla richiesta.
+	 *
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	abstract void writeEnd() throws IOException;
+
+	/**
+	 * Conclude la risposta in corso, interrotta da un errore imprevisto, con il
+	 * messaggio d'errore message, e la invia al client.
+	 *
+	 * @param message
+	 *            messaggio d'errore
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	void writeAbort(String message) throws IOException {
+		writeError(message);
+		writeEnd();
+		flush();
+	}
+
+	/**
+	 * Invia al client le risposte non ancora inviate.
+	 *
+	 * @throws IOException
+	 *             se la scrittura fallisce
+	 */
+	abstract void flush() throws IOException;
+}
@@ -1,198 +1,398 @@
-package server;
-
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.Socket;
-
-import data.Data;
-import data.OutOfRangeSampleSizeException;
-import mining.KMeansMiner;
-
-/**
- * Questa classe estende {@link Thread}. Implementa l'esecuzione di una
- * richiesta del client. Ogni richiesta viene eseguita in un thread separato.
- * 
- * @author Gianluca Pagliara
- *
- */
-public class ServerOneClient extends Thread {
-	private Socket socket;
-	private ObjectInputStream in;
-	private ObjectOutputStream out;
-	private KMeansMiner kmeans;
-
-	/**
-	 * Inizializza gli attributi e avvia il thread.
-	 * 
-	 * @param socket
-	 *            socket da cui ottenere gli stream.
-	 * @throws IOException
-	 *             {@link Socket#getInputStream()} e
-	 *             {@link Socket#getOutputStream()}
-	 */
-	public ServerOneClient(Socket socket) throws IOException {
-		this.socket = socket;
-		System.out.println("Connection accepted: " + socket);
-
-		in = new ObjectInputStream(socket.getInputStream());
-		out = new ObjectOutputStream(socket.getOutputStream());
-
-		start();
-	}
-
-	/**
-	 * Esegue il thread.
-	 */
-	@Override
-	public void run() {
-		try {
-			processRequest();
-
-			System.out.println("Closing connection.");
-		} catch (IOException e) {
-			System.out.println("Connection error: " + e.getMessage());
-		} catch (ClassNotFoundException e) {
-			System.out.println("Communication error: " + e.getMessage());
-		} finally {
-			try {
-				socket.close();
-			} catch (IOException e) {
-				System.out.println("Socket closing error: " + e.getMessage());
-			}
-		}
-	}
-
-	/**
-	 * Attende la ricezione di un messaggio dal client.
-	 * 
-	 * @return messaggio ricevuto dal client
-	 * 
-	 * @throws ClassNotFoundException
-	 *             {@link ObjectInputStream#readObject()}
-	 * @throws IOException
-	 *             {@link ObjectInputStream#readObject()}
-	 */
-	private String getMessage() throws ClassNotFoundException, IOException {
-		String string;
-		while (true) {
-			string = (String) in.readObject();
-			if (string != null)
-				break;
-		}
-		return string;
-	}
-
-	/**
-	 * Attende la ricezione di un numero dal client.
-	 * 
-	 * @return messaggio ricevuto dal client
-	 * 
-	 * @throws ClassNotFoundException
-	 *             {@link ObjectInputStream#readObject()}
-	 * @throws IOException
-	 *             {@link ObjectInputStream#readObject()}
-	 */
-	private int getNumber() throws ClassNotFoundException, IOException {
-		Integer number;
-		while (true) {
-			number = (Integer) in.readObject();
-			if (number != null) {
-				break;
-			}
-		}
-		return number;
-	}
-
-	/**
-	 * Esegue la richiesta del client.
-	 * 
-	 * @throws IOException
-	 *             {@link ServerOneClient#getMessage()} e
-	 *             {@link ObjectOutputStream#writeObject(Object)}
-	 * @throws ClassNotFoundException
-	 *             {@link ServerOneClient#getMessage()}
-	 */
-	private void processRequest() throws IOException, ClassNotFoundException {
-		String choice = getMessage();
-
-		switch (choice) {
-		case "DB":
-			String tableName = getMessage();
-			int numberOfClusters = getNumber();
-			String fileName = getMessage();
-			out.writeObject("OK");
-			learningFromDB(numberOfClusters, tableName, fileName);
-			break;
-		case "FILE":
-			fileName = getMessage();
-			out.writeObject("OK");
-			learningFromFile(fileName);
-			break;
-		}
-
-		out.writeObject("END");
-	}
-
-	/**
-	 * Esegue il processo di clustering da database.
-	 * 
-	 * @param numberOfClusters
-	 *            numero di cluster cercati
-	 * @param tableName
-	 *            nome della tabella in cui cercare i cluster
-	 * @param fileName
-	 *            nome del file in cui salvare i cluster
-	 * @throws IOException
-	 *             {@link ObjectOutputStream#writeObject(Object)}
-	 */
-	private void learningFromDB(int numberOfClusters, String tableName, String fileName) throws IOException {
-		kmeans = new KMeansMiner(numberOfClusters);
-		Data data = new Data(tableName);
-
-		try {
-			int numIter = kmeans.kmeans(data);
-			out.writeObject("Numero di iterazioni: " + numIter + "\n");
-			out.writeObject(kmeans.getC().toString(data));
-			out.writeObject("Salvataggio in " + fileName);
-			try {
-				kmeans.save(fileName);
-			} catch (FileNotFoundException e) {
-				System.out.println(e.getMessage());
-				out.writeObject(e.getMessage());
-			} catch (IOException e) {
-				System.out.println(e.getMessage());
-				out.writeObject(e.getMessage());
-			}
-		} catch (OutOfRangeSampleSizeException e) {
-			System.out.println(e.getMessage());
-			out.writeObject(e.getMessage());
-		}
-	}
-
-	/**
-	 * Carica i cluster da file.
-	 * 
-	 * @param fileName
-	 *            nome del file da cui caricare i cluster
-	 * @throws IOException
-	 *             {@link ObjectOutputStream#writeObject(Object)}
-	 */
-	private void learningFromFile(String fileName) throws IOException {
-		try {
-			kmeans = new KMeansMiner(fileName);
-			out.writeObject(kmeans.getC().toString());
-		} catch (FileNotFoundException e) {
-			System.out.println(e.getMessage());
-			out.writeObject(e.getMessage());
-		} catch (IOException e) {
-			System.out.println(e.getMessage());
-			out.writeObject(e.getMessage());
-		} catch (ClassNotFoundException e) {
-			System.out.println(e.getMessage());
-			out.writeObject(e.getMessage());
-		}
-	}
-
-}
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mining.CancellationToken;
+import mining.KMeansMiner;
+
+/**
+ * Questa classe implementa {@link Runnable}. Implementa la sessione di un
+ * client: una connessione su cui il client invia più richieste, ciascuna
+ * conclusa dal messaggio END, fino al comando QUIT. La sessione viene affidata
+ * da {@link MultiServer} a un thread del suo pool quando il client ha iniziato a
+ * inviare una richiesta; il thread esegue tutte le richieste già ricevute,
+ * anche se inviate senza attendere le risposte precedenti, e restituisce poi la
+ * connessione a {@link MultiServer}. Le richieste e le risposte usano il
+ * {@link Protocol} scelto dal client all'apertura della connessione.
+ * 
+ * @author Gianluca Pagliara
+ *
+ */
+public class ServerOneClient implements Runnable {
+	// millisecondi tra due invii consecutivi del comando WATCH in assenza di
+	// avanzamento
+	private static final long WATCH_INTERVAL = 1000;
+	// millisecondi tra due verifiche consecutive della chiusura della connessione
+	// durante l'esecuzione di un clustering
+	private static final long PROBE_INTERVAL = 100;
+
+	/**
+	 * Token annullato quando il client chiude la connessione mentre il clustering
+	 * richiesto è in esecuzione. Durante l'esecuzione il canale della connessione
+	 * è in modalità non bloccante e viene letto, al più ogni
+	 * {@link ServerOneClient#PROBE_INTERVAL} millisecondi, dai thread che
+	 * verificano l'annullamento. La lettura si interrompe al primo byte ricevuto,
+	 * che al termine dell'esecuzione viene restituito allo stream di input.
+	 */
+	private static class ConnectionToken extends CancellationToken {
+		private SocketChannel channel;
+		private ByteBuffer probe = ByteBuffer.allocate(1);
+		// false dopo aver ricevuto un byte o rilevato la chiusura
+		private volatile boolean probing = true;
+		private long lastProbe = 0;
+
+		ConnectionToken(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			if (probing && !super.isCancelled())
+				probe();
+			return super.isCancelled();
+		}
+
+		private synchronized void probe() {
+			long now = System.currentTimeMillis();
+			if (!probing || now - lastProbe < PROBE_INTERVAL)
+				return;
+			lastProbe = now;
+			try {
+				int read = channel.read(probe);
+				if (read < 0) {
+					System.out.println("Connection closed by client, cancelling clustering.");
+					probing = false;
+					cancel();
+				} else if (read > 0) {
+					probing = false;
+				}
+			} catch (IOException e) {
+				System.out.println("Connection error: " + e.getMessage() + ", cancelling clustering.");
+				probing = false;
+				cancel();
+			}
+		}
+
+		/**
+		 * Interrompe la lettura del canale e restituisce il byte ricevuto.
+		 *
+		 * @return byte ricevuto durante l'esecuzione, -1 se nessuno
+		 */
+		synchronized int stop() {
+			probing = false;
+			return probe.position() > 0 ? probe.get(0) & 0xFF : -1;
+		}
+	}
+
+	private Socket socket;
+	// byte già ricevuti dal client: l'intestazione del formato e l'inizio della
+	// prima richiesta
+	private byte[] received;
+	// stream di input della connessione, a cui restituire i byte letti da
+	// MultiServer o durante l'esecuzione di un clustering
+	private PushbackInputStream input;
+	private Protocol protocol;
+	private KMeansMiner kmeans;
+	private DatasetCache datasets;
+	private JobManager jobs;
+
+	/**
+	 * Inizializza gli attributi. Gli stream vengono creati dal thread che esegue
+	 * la prima richiesta, {@link ServerOneClient#run()}.
+	 * 
+	 * @param socket
+	 *            socket bloccante da cui ottenere gli stream, su cui è già stata
+	 *            inviata l'intestazione del server, {@link Protocol#accept(byte[])}
+	 * @param received
+	 *            byte già letti dal socket
+	 * @param datasets
+	 *            cache dei dati caricati dal database
+	 * @param jobs
+	 *            lavori asincroni del server
+	 */
+	ServerOneClient(Socket socket, byte[] received, DatasetCache datasets, JobManager jobs) {
+		this.socket = socket;
+		this.received = received;
+		this.datasets = datasets;
+		this.jobs = jobs;
+	}
+
+	/**
+	 * Restituisce allo stream di input i byte letti da {@link MultiServer} mentre
+	 * la connessione era in attesa della richiesta successiva.
+	 * 
+	 * @param received
+	 *            byte letti dal socket, al più quanti quelli ricevuti con la prima
+	 *            richiesta
+	 * @throws IOException
+	 *             {@link PushbackInputStream#unread(byte[])}
+	 */
+	void resume(byte[] received) throws IOException {
+		input.unread(received);
+	}
+
+	/**
+	 * Verifica se la sessione è stata chiusa, dal client o per un errore.
+	 * 
+	 * @return true se la connessione è chiusa
+	 */
+	boolean isClosed() {
+		return socket.isClosed();
+	}
+
+	/**
+	 * Crea gli stream, alla prima richiesta, ed esegue le richieste ricevute. Le
+	 * risposte vengono inviate al client quando non ci sono altre richieste da
+	 * eseguire. Chiude la connessione al comando QUIT, se il client la chiude o
+	 * resta inattivo durante l'invio di una richiesta, e in caso di errore; un
+	 * errore imprevisto durante una richiesta viene prima segnalato al client,
+	 * concludendone la risposta.
+	 */
+	@Override
+	public void run() {
+		// true solo se tutte le richieste sono state eseguite e le risposte inviate
+		boolean open = false;
+		try {
+			if (protocol == null) {
+				input = new PushbackInputStream(socket.getInputStream(), received.length);
+				input.unread(received);
+				protocol = Protocol.open(Arrays.copyOf(received, Protocol.HEADER_LENGTH), input,
+						new BufferedOutputStream(socket.getOutputStream()));
+			}
+			boolean more;
+			do {
+				more = processRequest();
+			} while (more && input.available() > 0);
+			protocol.flush();
+			open = more;
+
+			if (!open)
+				System.out.println("Closing connection.");
+		} catch (SocketTimeoutException e) {
+			System.out.println("Idle timeout: " + socket);
+		} catch (IOException e) {
+			System.out.println("Connection error: " + e.getMessage());
+		} catch (ClassNotFoundException e) {
+			System.out.println("Communication error: " + e.getMessage());
+		} catch (RuntimeException e) {
+			// Lo stato della sessione non è più affidabile: il client riceve l'errore e
+			// la connessione viene chiusa
+			System.out.println("Request error: " + e);
+			if (protocol != null) {
+				try {
+					protocol.writeAbort("Request failed: " + e);
+				} catch (IOException | RuntimeException e1) {
+					System.out.println("Connection error: " + e1.getMessage());
+				}
+			}
+		} finally {
+			if (!open) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					System.out.println("Socket closing error: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Esegue una richiesta del client. Oltre ai comandi DB e FILE, che vengono
+	 * eseguiti sulla connessione, e al comando QUIT, che chiude la sessione,
+	 * accetta:
+	 * <ul>
+	 * <li>DBX: come DB, con le opzioni dell'esecuzione dopo il nome del file; DB
+	 * riceve solo tabella, numero di cluster e file, come nelle versioni
+	 * precedenti del client, ed esegue il clustering con le opzioni
+	 * predefinite;</li>
+	 * <li>SUBMIT: accoda un clustering da database, con gli stessi parametri di
+	 * DBX, e restituisce l'identificativo del lavoro;</li>
+	 * <li>STATUS: restituisce lo stato del lavoro con l'identificativo ricevuto;</li>
+	 * <li>WATCH: invia l'avanzamento del lavoro, una riga per iterazione, fino al
+	 * suo termine;</li>
+	 * <li>CANCEL: annulla il lavoro;</li>
+	 * <li>RESULT: restituisce l'esito del lavoro terminato.</li>
+	 * </ul>
+	 * 
+	 * @return false se il client ha chiuso la sessione
+	 * @throws IOException
+	 *             se la lettura della richiesta o la scrittura della risposta
+	 *             fallisce
+	 * @throws ClassNotFoundException
+	 *             {@link Protocol#readCommand()}
+	 */
+	private boolean processRequest() throws IOException, ClassNotFoundException {
+		String choice = protocol.readCommand();
+
+		switch (choice) {
+		case "QUIT":
+			return false;
+		case "DB":
+		case "DBX":
+		case "SUBMIT":
+			String tableName = protocol.readString();
+			int numberOfClusters = protocol.readInt();
+			String fileName = protocol.readString();
+			String options = choice.equals("DB") ? "" : protocol.readString();
+			protocol.writeAccepted();
+			ClusteringJob request;
+			try {
+				request = new ClusteringJob(tableName, numberOfClusters, fileName, options);
+			} catch (InvalidOptionException e) {
+				System.out.println(e.getMessage());
+				protocol.writeError(e.getMessage());
+				break;
+			}
+			if (!choice.equals("SUBMIT")) {
+				protocol.writeResult(execute(request));
+			} else {
+				submitJob(request);
+			}
+			break;
+		case "FILE":
+			fileName = protocol.readString();
+			protocol.writeAccepted();
+			learningFromFile(fileName);
+			break;
+		case "STATUS":
+		case "WATCH":
+		case "CANCEL":
+		case "RESULT":
+			String id = protocol.readString();
+			protocol.writeAccepted();
+			Job job = jobs.get(id);
+			if (job == null) {
+				protocol.writeError("Unknown job: " + id);
+			} else if (choice.equals("STATUS")) {
+				protocol.writeMessage(job.toString());
+			} else if (choice.equals("WATCH")) {
+				watchJob(job);
+			} else if (choice.equals("CANCEL")) {
+				protocol.writeMessage(
+						job.cancel() ? "Cancellation requested: " + id : "Job already terminated: " + id);
+			} else {
+				ClusteringResult result = job.getResult();
+				if (result == null)
+					protocol.writeMessage(job.toString());
+				else
+					protocol.writeResult(result);
+			}
+			break;
+		}
+
+		protocol.writeEnd();
+		return true;
+	}
+
+	/**
+	 * Esegue la richiesta request sul thread della connessione, annullandola se il
+	 * client chiude la connessione prima del termine.
+	 * 
+	 * @param request
+	 *            richiesta di clustering
+	 * @return esito della richiesta
+	 * @throws IOException
+	 *             se non è possibile cambiare la modalità del canale
+	 */
+	private ClusteringResult execute(ClusteringJob request) throws IOException {
+		SocketChannel channel = socket.getChannel();
+		if (channel == null)
+			return request.execute(datasets, null, null);
+
+		ConnectionToken token = new ConnectionToken(channel);
+		channel.configureBlocking(false);
+		try {
+			return request.execute(datasets, null, token);
+		} finally {
+			channel.configureBlocking(true);
+			int received = token.stop();
+			if (received >= 0)
+				input.unread(received);
+		}
+	}
+
+	/**
+	 * Accoda la richiesta request e invia al client l'identificativo del lavoro.
+	 * 
+	 * @param request
+	 *            richiesta di clustering
+	 * @throws IOException
+	 *             {@link Protocol#writeMessage(String)}
+	 */
+	private void submitJob(ClusteringJob request) throws IOException {
+		Job job = jobs.submit(request);
+		if (job == null) {
+			protocol.writeError("Too many jobs, retry later.");
+			return;
+		}
+		System.out.println("Job submitted: " + job + " (" + jobs + ")");
+		protocol.writeMessage(job.getId());
+	}
+
+	/**
+	 * Invia al client le righe di avanzamento del lavoro job man mano che vengono
+	 * prodotte e, al termine del lavoro, il suo stato finale.
+	 * 
+	 * @param job
+	 *            lavoro da seguire
+	 * @throws IOException
+	 *             {@link Protocol#writeMessage(String)}
+	 */
+	private void watchJob(Job job) throws IOException {
+		int read = 0;
+		List<String> lines = new ArrayList<String>();
+		boolean done;
+		do {
+			done = job.isDone();
+			try {
+				read = job.waitForProgress(read, WATCH_INTERVAL, lines);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			for (String line : lines)
+				protocol.writeMessage(line);
+			lines.clear();
+			// Rileva la chiusura della connessione anche se non ci sono righe nuove
+			protocol.flush();
+		} while (!done);
+		protocol.writeMessage(job.toString());
+	}
+
+	/**
+	 * Carica i cluster da file.
+	 * 
+	 * @param fileName
+	 *            nome del file da cui caricare i cluster
+	 * @throws IOException
+	 *             {@link Protocol#writeResult(ClusteringResult)}
+	 */
+	private void learningFromFile(String fileName) throws IOException {
+		ClusteringResult result;
+		try {
+			kmeans = new KMeansMiner(fileName);
+			result = new ClusteringResult(kmeans.getC(), fileName);
+		} catch (FileNotFoundException e) {
+			System.out.println(e.getMessage());
+			result = new ClusteringResult(e.getMessage());
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+			result = new ClusteringResult(e.getMessage());
+		} catch (ClassNotFoundException e) {
+			System.out.println(e.getMessage());
+			result = new ClusteringResult(e.getMessage());
+		}
+		protocol.writeResult(result);
+	}
+
+}